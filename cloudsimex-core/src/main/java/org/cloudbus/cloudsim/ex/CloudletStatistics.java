@@ -0,0 +1,169 @@
+package org.cloudbus.cloudsim.ex;
+
+import java.util.Arrays;
+
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * Streaming statistics of returned cloudlets - the numbers of successful and
+ * failed cloudlets, and the minimal, maximal and mean delays (from submission
+ * to finish) of the successful ones. Optionally, the delays are summarised in
+ * a histogram with buckets of equal width. The memory footprint is constant,
+ * regardless of the number of cloudlets.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class CloudletStatistics implements ICloudletReturnListener {
+
+    private long numSuccessful = 0;
+    private long numFailed = 0;
+    private double sumDelay = 0;
+    private double minDelay = Double.NaN;
+    private double maxDelay = Double.NaN;
+
+    private final double bucketWidth;
+    /** The counts of delays per bucket. The last one counts the outliers. */
+    private final long[] histogram;
+
+    /**
+     * Constr. No histogram is kept.
+     */
+    public CloudletStatistics() {
+        this.bucketWidth = 0;
+        this.histogram = new long[0];
+    }
+
+    /**
+     * Constr.
+     * 
+     * @param bucketWidth
+     *            - the width of a bucket of the histogram of delays. Must be
+     *            positive.
+     * @param numBuckets
+     *            - the number of buckets of the histogram. The last bucket
+     *            counts all delays, not smaller than (numBuckets - 1) *
+     *            bucketWidth. Must be positive.
+     */
+    public CloudletStatistics(final double bucketWidth, final int numBuckets) {
+        if (bucketWidth <= 0 || numBuckets <= 0) {
+            throw new IllegalArgumentException("Invalid histogram with " + numBuckets + " buckets of width "
+                    + bucketWidth);
+        }
+        this.bucketWidth = bucketWidth;
+        this.histogram = new long[numBuckets];
+    }
+
+    @Override
+    public void cloudletReturned(final Cloudlet cloudlet) {
+        boolean successful = cloudlet.getCloudletStatus() == Cloudlet.SUCCESS;
+        record(successful, successful ? cloudlet.getFinishTime() - cloudlet.getSubmissionTime() : Double.NaN);
+    }
+
+    /**
+     * Records the result of a cloudlet.
+     * 
+     * @param successful
+     *            - if the cloudlet finished successfully.
+     * @param delay
+     *            - the delay of the cloudlet. Ignored for failed cloudlets.
+     */
+    public void record(final boolean successful, final double delay) {
+        if (!successful) {
+            numFailed++;
+            return;
+        }
+        numSuccessful++;
+        sumDelay += delay;
+        minDelay = Double.isNaN(minDelay) ? delay : Math.min(minDelay, delay);
+        maxDelay = Double.isNaN(maxDelay) ? delay : Math.max(maxDelay, delay);
+        if (histogram.length > 0) {
+            int bucket = (int) Math.min(histogram.length - 1, Math.max(0, Math.floor(delay / bucketWidth)));
+            histogram[bucket]++;
+        }
+    }
+
+    public long getNumberOfSuccessful() {
+        return numSuccessful;
+    }
+
+    public long getNumberOfFailed() {
+        return numFailed;
+    }
+
+    public long getNumberOfCloudlets() {
+        return numSuccessful + numFailed;
+    }
+
+    /**
+     * Returns the mean delay of the successful cloudlets.
+     * 
+     * @return the mean delay of the successful cloudlets, or NaN if there are
+     *         none.
+     */
+    public double getMeanDelay() {
+        return numSuccessful == 0 ? Double.NaN : sumDelay / numSuccessful;
+    }
+
+    /**
+     * Returns the minimal delay of the successful cloudlets.
+     * 
+     * @return the minimal delay of the successful cloudlets, or NaN if there
+     *         are none.
+     */
+    public double getMinDelay() {
+        return minDelay;
+    }
+
+    /**
+     * Returns the maximal delay of the successful cloudlets.
+     * 
+     * @return the maximal delay of the successful cloudlets, or NaN if there
+     *         are none.
+     */
+    public double getMaxDelay() {
+        return maxDelay;
+    }
+
+    public double getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * Returns a copy of the histogram of delays.
+     * 
+     * @return a copy of the histogram of delays. Empty, if no histogram is
+     *         kept.
+     */
+    public long[] getHistogram() {
+        return Arrays.copyOf(histogram, histogram.length);
+    }
+
+    /**
+     * Estimates a percentile of the delays from the histogram, as the upper
+     * bound of the bucket containing it.
+     * 
+     * @param percentile
+     *            - the percentile. Must be in the interval (0, 100].
+     * @return the estimated percentile, or NaN if no histogram is kept or
+     *         there are no successful cloudlets. If the percentile is within
+     *         the last bucket, the maximal delay is returned.
+     */
+    public double getDelayPercentile(final double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile: " + percentile);
+        }
+        if (histogram.length == 0 || numSuccessful == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) Math.ceil(percentile / 100 * numSuccessful);
+        long count = 0;
+        for (int i = 0; i < histogram.length - 1; i++) {
+            count += histogram[i];
+            if (count >= rank) {
+                return Math.min(maxDelay, (i + 1) * bucketWidth);
+            }
+        }
+        return maxDelay;
+    }
+}
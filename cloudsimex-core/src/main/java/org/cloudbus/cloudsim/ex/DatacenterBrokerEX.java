@@ -3,9 +3,12 @@ package org.cloudbus.cloudsim.ex;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.logging.Level;
@@ -23,6 +26,9 @@ import org.cloudbus.cloudsim.ex.vm.VMStatus;
 import org.cloudbus.cloudsim.ex.vm.VMex;
 import org.cloudbus.cloudsim.lists.VmList;
 
+import com.google.common.collect.LinkedHashMultimap;
+import com.google.common.collect.SetMultimap;
+
 /**
  * 
  * An extension to the default broker, which allows (i) VM destruction; (ii)
@@ -40,6 +46,9 @@ public class DatacenterBrokerEX extends DatacenterBroker {
     protected static final int BROKER_SUBMIT_VMS_NOW = BROKER_DESTROY_ITSELF_NOW + 2;
     protected static final int BROKER_CLOUDLETS_NOW = BROKER_DESTROY_ITSELF_NOW + 3;
 
+    /** A cloudlet retention, for which all cloudlets are kept. */
+    public static final int RETAIN_ALL_CLOUDLETS = -1;
+
     /** Number of VM destructions requested. */
     private int vmDestructsRequested = 0;
 
@@ -64,6 +73,37 @@ public class DatacenterBrokerEX extends DatacenterBroker {
     /** Billing policy. */
     private IVmBillingPolicy vmBillingPolicy = null;
 
+    /** The VMs of this broker by their ids. */
+    private final Map<Integer, Vm> vmsById = new HashMap<>();
+
+    /**
+     * The ids of the VMs in the list of created VMs, so that membership can be
+     * checked without scanning the list.
+     */
+    private final Set<Integer> createdVmIds = new HashSet<>();
+
+    /**
+     * The submitted cloudlets, which have not been returned yet, by the ids of
+     * their VMs. Allows the cloudlets of a destroyed VM to be found without
+     * scanning all submitted cloudlets.
+     */
+    private final SetMultimap<Integer, Cloudlet> activeCloudlets = LinkedHashMultimap.create();
+
+    /**
+     * How many of the returned cloudlets to keep in the lists of received and
+     * submitted cloudlets. If negative - all are kept.
+     */
+    private int cloudletRetention = RETAIN_ALL_CLOUDLETS;
+    /** Statistics of all returned cloudlets. */
+    private CloudletStatistics cloudletStatistics = new CloudletStatistics();
+    private final List<ICloudletReturnListener> cloudletReturnListeners = new ArrayList<>();
+
+    /**
+     * If true, the cloudlets submitted together to the same data centre are
+     * sent in a single event.
+     */
+    private boolean batchCloudletSubmission = false;
+
     /**
      * Constr.
      * 
@@ -101,6 +141,89 @@ public class DatacenterBrokerEX extends DatacenterBroker {
         this.vmBillingPolicy = vmBillingPolicy;
     }
 
+    /**
+     * Returns how many of the returned cloudlets are kept in the list of
+     * received cloudlets.
+     * 
+     * @return how many of the returned cloudlets are kept, or
+     *         {@link #RETAIN_ALL_CLOUDLETS}.
+     */
+    public int getCloudletRetention() {
+        return cloudletRetention;
+    }
+
+    /**
+     * Sets how many of the returned cloudlets are kept. If all are kept (the
+     * default), the lists of submitted and received cloudlets grow throughout
+     * the simulation. Otherwise, the list of received cloudlets keeps (at
+     * least) the specified number of last returned cloudlets, and the list of
+     * submitted cloudlets is periodically pruned of the returned ones. The
+     * lists are trimmed in bulk, and thus may temporarily contain up to twice
+     * as many cloudlets. Returned cloudlets are still summarised in the
+     * statistics and passed to the return listeners.
+     * 
+     * @param cloudletRetention
+     *            - how many of the returned cloudlets to keep. If 0 - none.
+     *            If {@link #RETAIN_ALL_CLOUDLETS} - all.
+     */
+    public void setCloudletRetention(final int cloudletRetention) {
+        this.cloudletRetention = cloudletRetention < 0 ? RETAIN_ALL_CLOUDLETS : cloudletRetention;
+    }
+
+    /**
+     * Returns the statistics of all returned cloudlets.
+     * 
+     * @return the statistics of all returned cloudlets.
+     */
+    public CloudletStatistics getCloudletStatistics() {
+        return cloudletStatistics;
+    }
+
+    /**
+     * Sets the statistics of the returned cloudlets - e.g. one with a
+     * histogram of delays.
+     * 
+     * @param cloudletStatistics
+     *            - the statistics. Must not be null.
+     */
+    public void setCloudletStatistics(final CloudletStatistics cloudletStatistics) {
+        this.cloudletStatistics = cloudletStatistics;
+    }
+
+    /**
+     * Adds a listener, which is notified when a cloudlet is returned.
+     * 
+     * @param listener
+     *            - the listener. Must not be null.
+     */
+    public void addCloudletReturnListener(final ICloudletReturnListener listener) {
+        cloudletReturnListeners.add(listener);
+    }
+
+    /**
+     * Returns if the cloudlets, submitted together to the same data centre, are
+     * sent in a single event.
+     * 
+     * @return if the cloudlets are submitted in batches.
+     */
+    public boolean isBatchCloudletSubmission() {
+        return batchCloudletSubmission;
+    }
+
+    /**
+     * Sets if the cloudlets, submitted together to the same data centre, should
+     * be sent in a single event. Thus the data centre updates the processing
+     * of its VMs once per batch, rather than once per cloudlet. All data
+     * centres, to which the cloudlets are submitted, must be instances of
+     * {@link DatacenterEX}.
+     * 
+     * @param batchCloudletSubmission
+     *            - if the cloudlets should be submitted in batches.
+     */
+    public void setBatchCloudletSubmission(final boolean batchCloudletSubmission) {
+        this.batchCloudletSubmission = batchCloudletSubmission;
+    }
+
     /**
      * Returns the number of requested VM destructions.
      * 
@@ -178,10 +301,15 @@ public class DatacenterBrokerEX extends DatacenterBroker {
             int[] data = (int[]) ev.getData();
             int vmId = data[1];
 
-            Vm vm = VmList.getById(getVmList(), vmId);
+            Vm vm = getVmById(vmId);
             if (vm.isBeingInstantiated()) {
                 vm.setBeingInstantiated(false);
             }
+            // Before the superclass adds it to the created VMs and possibly
+            // submits cloudlets to it
+            if (data[2] == CloudSimTags.TRUE) {
+                createdVmIds.add(vmId);
+            }
             processVmCreate(ev);
             break;
 
@@ -191,9 +319,113 @@ public class DatacenterBrokerEX extends DatacenterBroker {
         }
     }
 
+    @Override
+    public void submitVmList(final List<? extends Vm> list) {
+        super.submitVmList(list);
+        for (Vm vm : list) {
+            vmsById.put(vm.getId(), vm);
+        }
+    }
+
+    /**
+     * Returns the VM of this broker with the specified id.
+     * 
+     * @param vmId
+     *            - the id of the VM.
+     * @return the VM with the specified id, or null if there is no such VM.
+     */
+    protected Vm getVmById(final int vmId) {
+        Vm vm = vmsById.get(vmId);
+        if (vm == null) {
+            // The VM may have been added directly to the list of VMs
+            vm = VmList.getById(getVmList(), vmId);
+            if (vm != null) {
+                vmsById.put(vmId, vm);
+            }
+        }
+        return vm;
+    }
+
+    @Override
+    protected void submitCloudlets() {
+        List<Cloudlet> submitted = getCloudletSubmittedList();
+        int alreadySubmitted = submitted.size();
+        if (batchCloudletSubmission) {
+            submitCloudletsInBatches();
+        } else {
+            super.submitCloudlets();
+        }
+        for (int i = alreadySubmitted; i < submitted.size(); i++) {
+            Cloudlet cloudlet = submitted.get(i);
+            activeCloudlets.put(cloudlet.getVmId(), cloudlet);
+        }
+    }
+
+    /*
+     * Copied and modified from the superclass' submitCloudlets, so that the
+     * cloudlets for the same data centre are sent in a single event.
+     */
+    private void submitCloudletsInBatches() {
+        int vmIndex = 0;
+        List<Cloudlet> successfullySubmitted = new ArrayList<>();
+        Map<Integer, List<Cloudlet>> batches = new LinkedHashMap<>();
+        for (Cloudlet cloudlet : getCloudletList()) {
+            Vm vm;
+            // if user didn't bind this cloudlet and it has not been executed
+            // yet
+            if (cloudlet.getVmId() == -1) {
+                vm = getVmsCreatedList().get(vmIndex);
+            } else { // submit to the specific vm
+                vm = createdVmIds.contains(cloudlet.getVmId()) ? getVmById(cloudlet.getVmId()) : null;
+                if (vm == null) { // vm was not created
+                    if (!Log.isDisabled()) {
+                        Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Postponing execution of cloudlet ",
+                                cloudlet.getCloudletId(), ": bount VM not available");
+                    }
+                    continue;
+                }
+            }
+
+            if (!Log.isDisabled()) {
+                Log.printConcatLine(CloudSim.clock(), ": ", getName(), ": Sending cloudlet ",
+                        cloudlet.getCloudletId(), " to VM #", vm.getId());
+            }
+
+            cloudlet.setVmId(vm.getId());
+            Integer datacenterId = getVmsToDatacentersMap().get(vm.getId());
+            List<Cloudlet> batch = batches.get(datacenterId);
+            if (batch == null) {
+                batch = new ArrayList<>();
+                batches.put(datacenterId, batch);
+            }
+            batch.add(cloudlet);
+
+            cloudletsSubmitted++;
+            vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
+            getCloudletSubmittedList().add(cloudlet);
+            successfullySubmitted.add(cloudlet);
+        }
+
+        // remove submitted cloudlets from waiting list
+        if (successfullySubmitted.size() == getCloudletList().size()) {
+            getCloudletList().clear();
+        } else {
+            getCloudletList().removeAll(new HashSet<>(successfullySubmitted));
+        }
+
+        for (Map.Entry<Integer, List<Cloudlet>> batch : batches.entrySet()) {
+            if (batch.getValue().size() == 1) {
+                sendNow(batch.getKey(), CloudSimTags.CLOUDLET_SUBMIT, batch.getValue().get(0));
+            } else {
+                sendNow(batch.getKey(), DatacenterEX.DATACENTER_SUBMIT_CLOUDLETS_TAG, batch.getValue());
+            }
+        }
+    }
+
     @Override
     protected void processCloudletReturn(SimEvent ev) {
         Cloudlet cloudlet = (Cloudlet) ev.getData();
+        activeCloudlets.remove(cloudlet.getVmId(), cloudlet);
         if (getLifeLength() <= 0) {
             // Will kill the broker if there are no more cloudlets.
             super.processCloudletReturn(ev);
@@ -210,6 +442,39 @@ public class DatacenterBrokerEX extends DatacenterBroker {
             // createVmsInDatacenter(0);
             // }
         }
+
+        cloudletStatistics.cloudletReturned(cloudlet);
+        for (ICloudletReturnListener listener : cloudletReturnListeners) {
+            listener.cloudletReturned(cloudlet);
+        }
+        retainCloudlets();
+    }
+
+    /**
+     * Trims the lists of received and submitted cloudlets, as per the cloudlet
+     * retention. The lists are trimmed only when they have grown twice beyond
+     * the retained size, so that the amortised cost per cloudlet is constant.
+     */
+    private void retainCloudlets() {
+        if (cloudletRetention == RETAIN_ALL_CLOUDLETS) {
+            return;
+        }
+        List<Cloudlet> received = getCloudletReceivedList();
+        if (received.size() > 2 * cloudletRetention) {
+            received.subList(0, received.size() - cloudletRetention).clear();
+        }
+
+        List<Cloudlet> submitted = getCloudletSubmittedList();
+        if (submitted.size() > 2 * (activeCloudlets.size() + cloudletRetention)) {
+            List<Cloudlet> active = new ArrayList<>(activeCloudlets.size());
+            for (Cloudlet cloudlet : submitted) {
+                if (activeCloudlets.containsEntry(cloudlet.getVmId(), cloudlet)) {
+                    active.add(cloudlet);
+                }
+            }
+            submitted.clear();
+            submitted.addAll(active);
+        }
     }
 
     /**
@@ -331,18 +596,20 @@ public class DatacenterBrokerEX extends DatacenterBroker {
         int result = data[2];
 
         if (result == CloudSimTags.TRUE) {
-            Vm vm = VmList.getById(getVmsCreatedList(), vmId);
+            Vm vm = getVmById(vmId);
 
             // One more ack. to consider
             incrementVmDesctructsAcks();
 
             // Remove the vm from the created list
             getVmsCreatedList().remove(vm);
+            createdVmIds.remove(vmId);
             finilizeVM(vm);
 
-            // Kill all cloudlets associated with this VM
-            for (Cloudlet cloudlet : getCloudletSubmittedList()) {
-                if (!cloudlet.isFinished() && vmId == cloudlet.getVmId()) {
+            // Kill all cloudlets associated with this VM, which have not been
+            // returned yet
+            for (Cloudlet cloudlet : activeCloudlets.removeAll(vmId)) {
+                if (!cloudlet.isFinished()) {
                     try {
                         vm.getCloudletScheduler().cloudletCancel(cloudlet.getCloudletId());
                         cloudlet.setCloudletStatus(Cloudlet.FAILED_RESOURCE_UNAVAILABLE);
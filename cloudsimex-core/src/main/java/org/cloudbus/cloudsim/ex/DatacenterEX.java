@@ -1,10 +1,16 @@
 package org.cloudbus.cloudsim.ex;
 
 import java.util.List;
+import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.TreeSet;
+import java.util.logging.Level;
 
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.CloudletScheduler;
 import org.cloudbus.cloudsim.Datacenter;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
+import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Storage;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmAllocationPolicy;
@@ -13,6 +19,7 @@ import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEvent;
 import org.cloudbus.cloudsim.ex.delay.ConstantVMBootDelay;
 import org.cloudbus.cloudsim.ex.delay.IVMBootDelayDistribution;
+import org.cloudbus.cloudsim.ex.util.CustomLog;
 
 /**
  * Extended datacenter, that allows for VM booting delays to be modeled.
@@ -24,9 +31,23 @@ public class DatacenterEX extends Datacenter {
 
     // FIXME Find a better way to obtain an unused constant
     private static final int DATACENTER_BOOT_VM_TAG = 2345678;
+    /**
+     * The tag of an event, which submits a batch of cloudlets at once. The
+     * data of the event is a list of cloudlets.
+     */
+    public static final int DATACENTER_SUBMIT_CLOUDLETS_TAG = DATACENTER_BOOT_VM_TAG + 1;
 
     private IVMBootDelayDistribution delayDistribution = new ConstantVMBootDelay(0);
 
+    /** The simulation time of the last sweep over the hosts. */
+    private double lastSweepTime = -1;
+    /** The times of the pending update events, sent by this data center. */
+    private final NavigableSet<Double> pendingUpdateTimes = new TreeSet<>();
+    /** How many update requests were served by an earlier sweep. */
+    private long coalescedUpdatesCount = 0;
+    /** How many update events were not sent, as they were already pending. */
+    private long suppressedEventsCount = 0;
+
     public DatacenterEX(String name, DatacenterCharacteristics characteristics, VmAllocationPolicy vmAllocationPolicy,
             List<Storage> storageList, double schedulingInterval) throws Exception {
         super(name, characteristics, vmAllocationPolicy, storageList, schedulingInterval);
@@ -47,6 +68,28 @@ public class DatacenterEX extends Datacenter {
         this.delayDistribution = delayDistribution;
     }
 
+    /**
+     * Returns how many requests to update the processing of the VMs were
+     * coalesced with an earlier sweep over the hosts at the same simulation
+     * time.
+     * 
+     * @return how many update requests were coalesced.
+     */
+    public long getCoalescedUpdatesCount() {
+        return coalescedUpdatesCount;
+    }
+
+    /**
+     * Returns how many update events were not sent, because an event for the
+     * same simulation time was already pending.
+     * 
+     * @return how many update events were suppressed.
+     */
+    public long getSuppressedEventsCount() {
+        return suppressedEventsCount;
+    }
+
+    @SuppressWarnings("unchecked")
     @Override
     protected void processOtherEvent(final SimEvent ev) {
         switch (ev.getTag()) {
@@ -56,6 +99,9 @@ public class DatacenterEX extends Datacenter {
                 vm.setBeingInstantiated(false);
             }
             break;
+        case DATACENTER_SUBMIT_CLOUDLETS_TAG:
+            processCloudletsSubmit((List<? extends Cloudlet>) ev.getData());
+            break;
         default:
             super.processOtherEvent(ev);
             break;
@@ -96,6 +142,168 @@ public class DatacenterEX extends Datacenter {
 
     }
 
+    /**
+     * Processes a batch of cloudlets, submitted at the same time. Unlike
+     * individually submitted cloudlets, the processing of the VMs is updated
+     * only once before all cloudlets are submitted, the completed cloudlets
+     * are checked only once afterwards, and a single event is scheduled for
+     * the earliest estimated completion.
+     * 
+     * @param cloudlets
+     *            - the submitted cloudlets.
+     */
+    protected void processCloudletsSubmit(final List<? extends Cloudlet> cloudlets) {
+        updateCloudletProcessing();
+
+        double earliestFinishTime = Double.MAX_VALUE;
+        for (Cloudlet cloudlet : cloudlets) {
+            double estimatedFinishTime = submitCloudlet(cloudlet, false);
+            if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+                earliestFinishTime = Math.min(earliestFinishTime, estimatedFinishTime);
+            }
+        }
+        if (earliestFinishTime != Double.MAX_VALUE) {
+            scheduleUpdate(earliestFinishTime);
+        }
+
+        checkCloudletCompletion();
+    }
+
+    /*
+     * Copied and modified from the superclass, so that the update and the
+     * event scheduling are coalesced.
+     */
+    @Override
+    protected void processCloudletSubmit(final SimEvent ev, final boolean ack) {
+        updateCloudletProcessing();
+
+        double estimatedFinishTime = submitCloudlet((Cloudlet) ev.getData(), ack);
+        if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+            scheduleUpdate(estimatedFinishTime);
+        }
+
+        checkCloudletCompletion();
+    }
+
+    /**
+     * Copied and modified from the superclass. The hosts are swept at most
+     * once per simulation time - the cloudlets submitted afterwards at the
+     * same time schedule their own update events. The next update event is
+     * scheduled through {@link #scheduleUpdate(double)}.
+     */
+    @Override
+    protected void updateCloudletProcessing() {
+        double currentTime = CloudSim.clock();
+        if (currentTime == lastSweepTime) {
+            coalescedUpdatesCount++;
+            return;
+        }
+
+        // if some time passed since last processing
+        // R: for term is to allow loop at simulation start. Otherwise, one
+        // initial simulation step is skipped and schedulers are not properly
+        // initialized
+        if (currentTime < 0.111 || currentTime > getLastProcessTime() + CloudSim.getMinTimeBetweenEvents()) {
+            double smallerTime = Double.MAX_VALUE;
+            for (Host host : getVmAllocationPolicy().getHostList()) {
+                // inform VMs to update processing
+                double time = host.updateVmsProcessing(currentTime);
+                // what time do we expect that the next cloudlet will finish?
+                if (time < smallerTime) {
+                    smallerTime = time;
+                }
+            }
+            // guarantees a minimal interval before scheduling the event
+            if (smallerTime < currentTime + CloudSim.getMinTimeBetweenEvents() + 0.01) {
+                smallerTime = currentTime + CloudSim.getMinTimeBetweenEvents() + 0.01;
+            }
+            if (smallerTime != Double.MAX_VALUE) {
+                scheduleUpdate(smallerTime - currentTime);
+            }
+            setLastProcessTime(currentTime);
+            lastSweepTime = currentTime;
+        }
+    }
+
+    /**
+     * Schedules an event for updating the processing of the VMs, unless an
+     * event for the same time is already pending. Such an event would only
+     * repeat the sweep and the completion check of the pending one.
+     * 
+     * @param delay
+     *            - the delay of the event.
+     */
+    protected void scheduleUpdate(final double delay) {
+        double currentTime = CloudSim.clock();
+        while (!pendingUpdateTimes.isEmpty() && pendingUpdateTimes.first() <= currentTime) {
+            pendingUpdateTimes.pollFirst();
+        }
+
+        double time = currentTime + delay;
+        if (time > currentTime && !pendingUpdateTimes.add(time)) {
+            suppressedEventsCount++;
+        } else {
+            send(getId(), delay, CloudSimTags.VM_DATACENTER_EVENT);
+        }
+    }
+
+    /**
+     * Submits a cloudlet to the scheduler of its VM. Copied and modified from
+     * the superclass' processCloudletSubmit - it does not update the processing
+     * of the VMs, does not check for completed cloudlets and does not schedule
+     * events, so that these can be done once for a batch of cloudlets.
+     * 
+     * @param cl
+     *            - the cloudlet.
+     * @param ack
+     *            - if the submission should be acknowledged to the owner of
+     *            the cloudlet.
+     * @return the estimated delay, after which the cloudlet will finish, or 0
+     *         if the cloudlet was not submitted or is waiting.
+     */
+    protected double submitCloudlet(final Cloudlet cl, final boolean ack) {
+        double estimatedFinishTime = 0;
+        try {
+            // checks whether this Cloudlet has finished or not
+            if (cl.isFinished()) {
+                CustomLog.printf("%s: Cloudlet %d owned by %s is already completed/finished and will not be "
+                        + "executed again", getName(), cl.getCloudletId(), CloudSim.getEntityName(cl.getUserId()));
+                if (ack) {
+                    sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_SUBMIT_ACK, new int[] { getId(),
+                            cl.getCloudletId(), CloudSimTags.FALSE });
+                }
+                sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_RETURN, cl);
+                return 0;
+            }
+
+            cl.setResourceParameter(getId(), getCharacteristics().getCostPerSecond(), getCharacteristics()
+                    .getCostPerBw());
+
+            int userId = cl.getUserId();
+            int vmId = cl.getVmId();
+
+            // time to transfer the files
+            double fileTransferTime = predictFileTransferTime(cl.getRequiredFiles());
+
+            Host host = getVmAllocationPolicy().getHost(vmId, userId);
+            Vm vm = host.getVm(vmId, userId);
+            CloudletScheduler scheduler = vm.getCloudletScheduler();
+            estimatedFinishTime = scheduler.cloudletSubmit(cl, fileTransferTime);
+            if (estimatedFinishTime > 0.0 && !Double.isInfinite(estimatedFinishTime)) {
+                estimatedFinishTime += fileTransferTime;
+            }
+
+            if (ack) {
+                sendNow(cl.getUserId(), CloudSimTags.CLOUDLET_SUBMIT_ACK, new int[] { getId(), cl.getCloudletId(),
+                        CloudSimTags.TRUE });
+            }
+        } catch (Exception e) {
+            CustomLog.logError(Level.SEVERE, getName() + ": An error occurred when submitting cloudlet "
+                    + cl.getCloudletId(), e);
+        }
+        return estimatedFinishTime;
+    }
+
     @Override
     public String toString() {
         return String.format("DC(%s,%d)", Objects.toString(getName(), "N/A"), getId());
@@ -0,0 +1,24 @@
+package org.cloudbus.cloudsim.ex;
+
+import org.cloudbus.cloudsim.Cloudlet;
+
+/**
+ * A listener, which is notified when a cloudlet is returned to a
+ * {@link DatacenterBrokerEX}. Allows the results of the cloudlets to be
+ * processed (e.g. logged or summarised) as they come, rather than kept in
+ * the broker until the end of the simulation.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public interface ICloudletReturnListener {
+
+    /**
+     * Invoked when a cloudlet is returned to the broker - either finished or
+     * failed.
+     * 
+     * @param cloudlet
+     *            - the returned cloudlet.
+     */
+    public void cloudletReturned(final Cloudlet cloudlet);
+}
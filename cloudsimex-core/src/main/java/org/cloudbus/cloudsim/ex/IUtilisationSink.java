@@ -0,0 +1,44 @@
+package org.cloudbus.cloudsim.ex;
+
+/**
+ * A consumer of the VM utilisations, recorded by a {@link MonitoringBorkerEX}.
+ * Allows the recorded utilisations to be streamed (e.g. to a file) while the
+ * simulation runs, rather than kept in memory until its end.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public interface IUtilisationSink {
+
+    /**
+     * Consumes the utilisation of a VM.
+     * 
+     * @param time
+     *            - the time of the measurement.
+     * @param vmId
+     *            - the id of the VM.
+     * @param cpuUtil
+     *            - the CPU utilisation.
+     * @param ramUtil
+     *            - the RAM utilisation.
+     * @param diskUtil
+     *            - the disk utilisation.
+     */
+    public void record(final double time, final int vmId, final double cpuUtil, final double ramUtil,
+            final double diskUtil);
+
+    /**
+     * Invoked after the utilisations of all VMs for the specified time have
+     * been recorded.
+     * 
+     * @param time
+     *            - the time of the measurement.
+     */
+    public void recordCompleted(final double time);
+
+    /**
+     * Invoked when no more utilisations will be recorded. Should release all
+     * resources.
+     */
+    public void close();
+}
@@ -1,17 +1,20 @@
 package org.cloudbus.cloudsim.ex;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 
 import org.cloudbus.cloudsim.ResCloudlet;
 import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.cloudbus.cloudsim.ex.disk.HddCloudlet;
-import org.cloudbus.cloudsim.ex.disk.HddResCloudlet;
+import org.cloudbus.cloudsim.ex.disk.HddCloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.ex.disk.HddVm;
+import org.cloudbus.cloudsim.ex.util.CustomLog;
+import org.cloudbus.cloudsim.ex.util.UtilisationHistory;
 import org.cloudbus.cloudsim.ex.vm.MonitoredVMex;
 
 /**
@@ -44,11 +47,18 @@ public class MonitoringBorkerEX extends DatacenterBrokerEX {
 
     private final List<IAutoscalingPolicy> autoscalingPolicies = new ArrayList<>();
 
+    /** The recorded utilisations of the monitored VMs. */
+    private UtilisationHistory utilisationHistory = new UtilisationHistory();
     /**
-     * A map, whose entries are in the format [time, Map[vm-id, Array[cpu-util,
-     * ram-util, io-util]]] .
+     * A map view of the recorded utilisations, whose entries are in the format
+     * [time, Map[vm-id, Array[cpu-util, ram-util, io-util]]]. Built lazily.
      */
     private final LinkedHashMap<Double, Map<Integer, double[]>> recordedUtilisations = new LinkedHashMap<>();
+    /** The number of ticks of the history, already in the map view. */
+    private int recordedUtilisationsTicks = 0;
+    /** If the recorded utilisations should be kept in the history. */
+    private boolean keepUtilisationHistory = true;
+    private final List<IUtilisationSink> utilisationSinks = new ArrayList<>();
     private double utilisationRecorddDelta = -1;
 
     /**
@@ -170,13 +180,36 @@ public class MonitoringBorkerEX extends DatacenterBrokerEX {
 
     private void recordUtil() {
         double currTime = CloudSim.clock();
-        Map<Integer, double[]> vmsUtil = new LinkedHashMap<>();
+        if (keepUtilisationHistory) {
+            utilisationHistory.startTick(currTime);
+        }
         for (Vm vm : getVmList()) {
             if (vm instanceof MonitoredVMex) {
-                vmsUtil.put(vm.getId(), ((MonitoredVMex) vm).getAveragedUtil());
+                double[] util = ((MonitoredVMex) vm).getAveragedUtil();
+                if (keepUtilisationHistory) {
+                    utilisationHistory.add(vm.getId(), util[0], util[1], util[2]);
+                }
+                for (IUtilisationSink sink : utilisationSinks) {
+                    sink.record(currTime, vm.getId(), util[0], util[1], util[2]);
+                }
             }
         }
-        recordedUtilisations.put(currTime, vmsUtil);
+        for (IUtilisationSink sink : utilisationSinks) {
+            sink.recordCompleted(currTime);
+        }
+    }
+
+    @Override
+    public void shutdownEntity() {
+        super.shutdownEntity();
+        for (IUtilisationSink sink : utilisationSinks) {
+            sink.close();
+        }
+        try {
+            utilisationHistory.close();
+        } catch (IOException e) {
+            CustomLog.logError(Level.SEVERE, "Could not close the utilisation history", e);
+        }
     }
 
     /**
@@ -187,9 +220,65 @@ public class MonitoringBorkerEX extends DatacenterBrokerEX {
      *         format [time, Map[vm-id, Array[cpu-util, ram-util, io-util]]] .
      */
     public LinkedHashMap<Double, Map<Integer, double[]>> getRecordedUtilisations() {
+        recordedUtilisationsTicks = utilisationHistory.appendTo(recordedUtilisations, recordedUtilisationsTicks);
         return recordedUtilisations;
     }
 
+    /**
+     * Adds a sink, which consumes the recorded utilisations as they are
+     * recorded. The sink is closed when the broker is shut down.
+     * 
+     * @param sink
+     *            - the sink. Must not be null.
+     */
+    public void addUtilisationSink(final IUtilisationSink sink) {
+        utilisationSinks.add(sink);
+    }
+
+    /**
+     * Sets if the recorded utilisations should be kept in memory, in the
+     * utilisation history. If not, they are only passed to the utilisation
+     * sinks, and the memory footprint of long simulations remains constant.
+     * 
+     * @param keepUtilisationHistory
+     *            - if the recorded utilisations should be kept in memory.
+     */
+    public void setKeepUtilisationHistory(final boolean keepUtilisationHistory) {
+        this.keepUtilisationHistory = keepUtilisationHistory;
+    }
+
+    /**
+     * Returns if the recorded utilisations are kept in memory.
+     * 
+     * @return if the recorded utilisations are kept in memory.
+     */
+    public boolean isKeepUtilisationHistory() {
+        return keepUtilisationHistory;
+    }
+
+    /**
+     * Returns the columnar store of the recorded utilisations.
+     * 
+     * @return the columnar store of the recorded utilisations.
+     */
+    public UtilisationHistory getUtilisationHistory() {
+        return utilisationHistory;
+    }
+
+    /**
+     * Sets the store of the recorded utilisations - e.g. one which spills to a
+     * file. Should be called before any utilisation is recorded. The store is
+     * closed when the broker is shut down, and its records remain readable.
+     * 
+     * @param utilisationHistory
+     *            - the new store. Must not be null.
+     */
+    public void setUtilisationHistory(final UtilisationHistory utilisationHistory) {
+        this.utilisationHistory = utilisationHistory;
+        this.recordedUtilisations.clear();
+        this.recordedUtilisationsTicks = 0;
+    }
+
     protected void measureUtil() {
         for (Vm vm : getVmList()) {
             if (vm instanceof MonitoredVMex) {
@@ -209,14 +298,17 @@ public class MonitoringBorkerEX extends DatacenterBrokerEX {
             double vmMips = vm.getMips() * vm.getNumberOfPes();
             double vmIOMips = 0;
             double vmRam = vm.getRam();
-            for (ResCloudlet cloudlet : vm.getCloudletScheduler().getCloudletExecList()) {
-                sumCPUCloudLets += cloudlet.getRemainingCloudletLength();
-                if (vm instanceof HddVm) {
-                    if (cloudlet instanceof HddResCloudlet) {
-                        sumIOCloudLets += ((HddResCloudlet) cloudlet).getRemainingCloudletIOLength();
-                        sumRAMCloudLets += ((HddCloudlet) cloudlet.getCloudlet()).getRam();
-                    }
-                    vmIOMips = ((HddVm) vm).getIoMips();
+            if (vm instanceof HddVm) {
+                // The scheduler maintains the sums, and thus there is no need
+                // to iterate over all cloudlets
+                HddCloudletSchedulerTimeShared scheduler = ((HddVm) vm).getCloudletScheduler();
+                sumCPUCloudLets = scheduler.getTotalRemainingLength();
+                sumIOCloudLets = scheduler.getTotalRemainingIOLength();
+                sumRAMCloudLets = scheduler.getTotalExecRam();
+                vmIOMips = ((HddVm) vm).getIoMips();
+            } else {
+                for (ResCloudlet cloudlet : vm.getCloudletScheduler().getCloudletExecList()) {
+                    sumCPUCloudLets += cloudlet.getRemainingCloudletLength();
                 }
             }
 
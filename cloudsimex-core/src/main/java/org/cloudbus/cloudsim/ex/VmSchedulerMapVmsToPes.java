@@ -32,6 +32,7 @@ public abstract class VmSchedulerMapVmsToPes<P extends Pe> extends VmSchedulerWi
      *            - the id of the pe.
      */
     public void map(final int vmid, final int peid) {
+        invalidateUsedPeIndices();
         if (vmsToPes.containsKey(vmid)) {
             vmsToPes.get(vmid).add(peid);
         } else {
@@ -1,7 +1,8 @@
 package org.cloudbus.cloudsim.ex;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,64 +27,138 @@ import org.cloudbus.cloudsim.VmScheduler;
  */
 public abstract class VmSchedulerWithIndependentPes<P extends Pe> extends VmScheduler {
 
-    private final LinkedHashMap<P, VmScheduler> peIdsToSchedulers = new LinkedHashMap<>();
+    /** The PEs and their schedulers. The i-th scheduler manages the i-th PE. */
+    private final List<P> pes = new ArrayList<>();
+    private final List<VmScheduler> schedulers = new ArrayList<>();
+
+    /**
+     * The allocations of the VMs as arrays, cached until the allocations
+     * change.
+     */
+    private final Map<Vm, double[]> allocatedMipsArrays = new HashMap<>();
+
+    /**
+     * The indices (in {@link #pes}) of the PEs used by the VMs, in increasing
+     * order. Cached until the VM is deallocated or the mapping of VMs to PEs
+     * changes.
+     */
+    private final Map<Vm, int[]> usedPeIndices = new HashMap<>();
 
     public VmSchedulerWithIndependentPes(final List<P> pelist) {
         super(pelist);
         for (P pe : pelist) {
-            peIdsToSchedulers.put(pe, createSchedulerFroPe(pe));
+            pes.add(pe);
+            schedulers.add(createSchedulerFroPe(pe));
         }
     }
 
     @Override
     public List<Double> getAllocatedMipsForVm(final Vm vm) {
-        List<Double> result = new ArrayList<>();
-        for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
-            P pe = entry.getKey();
-            VmScheduler scheduler = entry.getValue();
-            if (doesVmUse(vm, pe)) {
-                List<Double> alloc = scheduler.getAllocatedMipsForVm(vm);
-                result.add(alloc.get(0));
-            } else {
-                result.add(0.0);
+        List<Double> result = new ArrayList<>(pes.size());
+        for (int i = 0; i < pes.size(); i++) {
+            result.add(0.0);
+        }
+        for (int i : getUsedPeIndices(vm)) {
+            result.set(i, schedulers.get(i).getAllocatedMipsForVm(vm).get(0));
+        }
+
+        return result;
+    }
+
+    /**
+     * Returns the MIPS allocated to the VM by each of the PEs, as an array.
+     * Unlike {@link #getAllocatedMipsForVm(Vm)}, the result is cached until the
+     * allocations change, and thus consecutive calls do not allocate memory.
+     * The caller must not modify the result.
+     * 
+     * @param vm
+     *            - the vm.
+     * @return the MIPS allocated to the VM by each of the PEs. The i-th element
+     *         corresponds to the i-th PE.
+     */
+    public double[] getAllocatedMipsArrayForVm(final Vm vm) {
+        double[] result = allocatedMipsArrays.get(vm);
+        if (result == null) {
+            result = new double[pes.size()];
+            for (int i : getUsedPeIndices(vm)) {
+                result[i] = schedulers.get(i).getAllocatedMipsForVm(vm).get(0);
             }
+            allocatedMipsArrays.put(vm, result);
         }
+        return result;
+    }
 
+    /**
+     * Returns the indices of the PEs, which the VM uses. They are computed
+     * with {@link #doesVmUse(Vm, Pe)} once, and are cached until the VM is
+     * deallocated or {@link #invalidateUsedPeIndices()} is called.
+     * 
+     * @param vm
+     *            - the vm.
+     * @return the indices of the PEs, which the VM uses, in increasing order.
+     *         The caller must not modify the result.
+     */
+    protected int[] getUsedPeIndices(final Vm vm) {
+        int[] result = usedPeIndices.get(vm);
+        if (result == null) {
+            int[] indices = new int[pes.size()];
+            int count = 0;
+            for (int i = 0; i < pes.size(); i++) {
+                if (doesVmUse(vm, pes.get(i))) {
+                    indices[count++] = i;
+                }
+            }
+            result = Arrays.copyOf(indices, count);
+            usedPeIndices.put(vm, result);
+        }
         return result;
     }
 
+    /**
+     * Invalidates the cached indices of the used PEs and the cached
+     * allocations of all VMs. Must be called whenever the mapping of VMs to
+     * PEs changes.
+     */
+    protected void invalidateUsedPeIndices() {
+        usedPeIndices.clear();
+        invalidateAllocatedMipsArrays();
+    }
+
+    /**
+     * Invalidates the cached allocations of all VMs. Must be called whenever
+     * the allocations or the mapping of VMs to PEs change.
+     */
+    protected void invalidateAllocatedMipsArrays() {
+        allocatedMipsArrays.clear();
+    }
+
     @Override
     public boolean allocatePesForVm(final Vm vm, final List<Double> mipsShare) {
+        // The shares of the other VMs on the same PEs may change as well
+        invalidateAllocatedMipsArrays();
         boolean result = true;
-        int i = 0;
-        for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
-            P pe = entry.getKey();
-            VmScheduler scheduler = entry.getValue();
-            if (doesVmUse(vm, pe)) {
-                // Call the scheduler of the i-th Pe with the i-th value from
-                // the mipsShare
-                result &= scheduler.allocatePesForVm(vm, mipsShare.subList(i, i + 1));
-            }
-            i++;
+        for (int i : getUsedPeIndices(vm)) {
+            // Call the scheduler of the i-th Pe with the i-th value from
+            // the mipsShare
+            result &= schedulers.get(i).allocatePesForVm(vm, mipsShare.subList(i, i + 1));
         }
         return result;
     }
 
     @Override
     public void deallocatePesForVm(final Vm vm) {
-        for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
-            P pe = entry.getKey();
-            VmScheduler scheduler = entry.getValue();
-            if (doesVmUse(vm, pe)) {
-                scheduler.deallocatePesForVm(vm);
-            }
+        invalidateAllocatedMipsArrays();
+        for (int i : getUsedPeIndices(vm)) {
+            schedulers.get(i).deallocatePesForVm(vm);
         }
+        usedPeIndices.remove(vm);
     }
 
     @Override
     public void deallocatePesForAllVms() {
-        for (Map.Entry<P, VmScheduler> entry : peIdsToSchedulers.entrySet()) {
-            VmScheduler scheduler = entry.getValue();
+        invalidateAllocatedMipsArrays();
+        usedPeIndices.clear();
+        for (VmScheduler scheduler : schedulers) {
             scheduler.deallocatePesForAllVms();
         }
     }
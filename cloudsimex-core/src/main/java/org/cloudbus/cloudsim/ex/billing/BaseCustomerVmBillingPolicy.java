@@ -1,6 +1,8 @@
 package org.cloudbus.cloudsim.ex.billing;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -11,59 +13,104 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.ex.util.CustomLog;
 import org.cloudbus.cloudsim.ex.vm.VMex;
 
+import com.google.common.collect.ImmutableMap;
+
 /**
  * Implements a policy for billing a customer's vms. Simply sums the bills for
  * all VMs.
  * 
+ * <br>
+ * <br>
+ * Subclasses, which charge the price for a number of periods (see
+ * {@link #chargeCount(double)}), are billed on a fast path - the prices are
+ * resolved once in the constructor as integer micro-cents, the charges of all
+ * VMs are summed as a long, and only the total is converted to a
+ * {@link BigDecimal}.
+ * 
  * @author nikolay.grozev
  * 
  */
 public abstract class BaseCustomerVmBillingPolicy implements IVmBillingPolicy {
 
+    /**
+     * The decimal scale of the prices in micro-cents - a unit of the price
+     * currency is 10^8 micro-cents. Prices must not have more decimal places.
+     */
+    private static final int MICRO_CENTS_SCALE = 8;
+    /** The scale of the amounts, which can not be computed exactly. */
+    private static final int AMOUNT_SCALE = 12;
+    private static final BigDecimal MINUTES_IN_HOUR = BigDecimal.valueOf(60);
+
+    /** An immutable snapshot of the prices, taken in the constructor. */
     protected final Map<Pair<String, String>, BigDecimal> prices;
 
+    /** The prices, resolved in the constructor. */
+    private final Map<Pair<String, String>, PriceSlot> priceSlots = new HashMap<>();
+
     /**
      * Constr.
      * 
      * @param prices
      *            - the prices in a map with entries in the form [[vm-type, OS],
      *            price].It us up to the subclasses to interpret if these prices
-     *            are per hour/minute etc.
+     *            are per hour/minute etc. The map is copied in the
+     *            constructor, and subsequent changes of it are not reflected.
+     *            The prices must not have more than 8 decimal places.
+     * @throws IllegalArgumentException
+     *             - if a price has more than 8 decimal places.
      */
     public BaseCustomerVmBillingPolicy(final Map<Pair<String, String>, BigDecimal> prices) {
-        this.prices = prices;
+        this.prices = ImmutableMap.copyOf(prices);
+        for (Map.Entry<Pair<String, String>, BigDecimal> entry : this.prices.entrySet()) {
+            priceSlots.put(entry.getKey(), new PriceSlot(entry.getValue()));
+        }
     }
 
     @Override
     public BigDecimal bill(final List<? extends Vm> vms) {
-        BigDecimal result = BigDecimal.ZERO;
-        for (Vm vm : vms) {
-            if (vm instanceof VMex) {
-                VMex vmEx = (VMex) vm;
-                if (shouldBillVm(vmEx)) {
-                    result = result.add(billSingleVm(vmEx));
-                }
-            } else {
-                CustomLog.printConcat("Unable to bill VM", vm.getId(), " as it is not of type ", VMex.class.getName());
-            }
-        }
-        return result;
+        return bill(vms, false, 0);
     }
 
     @Override
     public BigDecimal bill(final List<? extends Vm> vms, double before) {
+        return bill(vms, true, before);
+    }
+
+    /**
+     * Bills the VMs in one pass. The bills of the VMs with a price slot and a
+     * charge count are summed in micro-cents, and the others are billed
+     * with {@link #billSingleVm(VMex)} or
+     * {@link #billSingleVmUntil(VMex, double)}.
+     * 
+     * @param vms
+     *            - the vms to bill.
+     * @param until
+     *            - if only the time before endTime should be billed.
+     * @param endTime
+     *            - the end of the billed time, if until is true.
+     * @return the cost for the specified vms.
+     */
+    private BigDecimal bill(final List<? extends Vm> vms, final boolean until, final double endTime) {
+        long microCents = 0;
         BigDecimal result = BigDecimal.ZERO;
         for (Vm vm : vms) {
             if (vm instanceof VMex) {
                 VMex vmEx = (VMex) vm;
                 if (shouldBillVm(vmEx)) {
-                    result = result.add(billSingleVmUntil(vmEx, before));
+                    PriceSlot slot = priceSlots.get(keyOf(vmEx));
+                    double duration = until ? billedTimeUntil(vmEx, endTime) : vmEx.getTimeAfterBooting();
+                    long chargeCount = slot == null ? -1 : chargeCount(duration);
+                    if (chargeCount >= 0) {
+                        microCents += slot.microCents * chargeCount;
+                    } else {
+                        result = result.add(until ? billSingleVmUntil(vmEx, endTime) : billSingleVm(vmEx));
+                    }
                 }
             } else {
                 CustomLog.printConcat("Unable to bill VM", vm.getId(), " as it is not of type ", VMex.class.getName());
             }
         }
-        return result;
+        return microCents == 0 ? result : result.add(toAmount(microCents));
     }
 
     /**
@@ -106,9 +153,78 @@ public abstract class BaseCustomerVmBillingPolicy implements IVmBillingPolicy {
         return CloudSim.clock();
     }
 
+    /**
+     * Returns how many times the price should be charged for a VM, which has
+     * run for the specified time. Subclasses, which return a non-negative
+     * value, are billed on the fast path. The default implementation returns
+     * -1, and thus the VMs are billed with {@link #billSingleVm(VMex)} and
+     * {@link #billSingleVmUntil(VMex, double)}.
+     * 
+     * @param duration
+     *            - how long the VM has run.
+     * @return how many times the price should be charged, or a negative
+     *         number if the policy does not support this.
+     */
+    protected long chargeCount(final double duration) {
+        return -1;
+    }
+
+    /**
+     * Returns in how many charges the price is paid - e.g. 60 if an hourly
+     * price is charged per minute. By default, it is 1.
+     * 
+     * @return in how many charges the price is paid.
+     */
+    protected int chargesPerPrice() {
+        return 1;
+    }
+
+    /**
+     * Returns the bill of a VM, which has run for the specified time, as per
+     * {@link #chargeCount(double)}.
+     * 
+     * @param vm
+     *            - the vm. Must have a price.
+     * @param duration
+     *            - how long the VM has run.
+     * @return the bill of the VM.
+     */
+    protected BigDecimal billByChargeCount(final VMex vm, final double duration) {
+        return toAmount(priceSlots.get(keyOf(vm)).microCents * chargeCount(duration));
+    }
+
+    /**
+     * Returns for how long a VM should be billed before a specified time.
+     * 
+     * @param vm
+     *            - the vm.
+     * @param endTime
+     *            - the end of the billed time.
+     * @return for how long the VM should be billed.
+     */
+    protected double billedTimeUntil(final VMex vm, final double endTime) {
+        return vm.getEndTime() < 0 || vm.getEndTime() > endTime ? endTime - vm.getStartTime() : vm
+                .getTimeAfterBooting();
+    }
+
+    /**
+     * Converts a sum of micro-cents charges to an amount in the price
+     * currency.
+     * 
+     * @param microCents
+     *            - the sum of the charges, in micro-cents per price.
+     * @return the amount in the price currency.
+     */
+    private BigDecimal toAmount(final long microCents) {
+        BigDecimal result = BigDecimal.valueOf(microCents, MICRO_CENTS_SCALE);
+        int chargesPerPrice = chargesPerPrice();
+        return chargesPerPrice == 1 ? result : result.divide(BigDecimal.valueOf(chargesPerPrice), AMOUNT_SCALE,
+                RoundingMode.HALF_EVEN);
+    }
+
     public static ImmutablePair<String, String> keyOf(final VMex vm) {
         if (vm.getMetadata() != null) {
-            return ImmutablePair.of(vm.getMetadata().getType(), vm.getMetadata().getOS());
+            return vm.getMetadata().getTypeAndOS();
         }
         return null;
     }
@@ -117,13 +233,29 @@ public abstract class BaseCustomerVmBillingPolicy implements IVmBillingPolicy {
     public BigDecimal normalisedCostPerMinute(final Vm vm) {
         BigDecimal result = BigDecimal.valueOf(-1);
         if (vm instanceof VMex) {
-            Pair<String, String> key = keyOf((VMex) vm);
+            PriceSlot slot = priceSlots.get(keyOf((VMex) vm));
+            result = slot != null ? slot.costPerMinute : result;
+        }
+        return result;
+    }
+
+    /**
+     * A price, resolved for the fast path.
+     */
+    private static final class PriceSlot {
+        /** The price in micro-cents. */
+        private final long microCents;
+        private final BigDecimal costPerMinute;
+
+        public PriceSlot(final BigDecimal price) {
             try {
-                result = prices.containsKey(key) ? prices.get(key).divide(BigDecimal.valueOf(60d)) : result;
-            } catch (ArithmeticException ex) {
-                result = prices.containsKey(key) ? BigDecimal.valueOf(prices.get(key).doubleValue() / 60d) : result;
+                this.microCents = price.setScale(MICRO_CENTS_SCALE, RoundingMode.UNNECESSARY)
+                        .movePointRight(MICRO_CENTS_SCALE).longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("The price " + price + " has more than " + MICRO_CENTS_SCALE
+                        + " decimal places or is too big", e);
             }
+            this.costPerMinute = price.divide(MINUTES_IN_HOUR, AMOUNT_SCALE, RoundingMode.HALF_EVEN);
         }
-        return result;
     }
 }
@@ -32,24 +32,21 @@ public class EC2OnDemandPolicy extends BaseCustomerVmBillingPolicy {
 
     @Override
     public BigDecimal billSingleVm(final VMex vm) {
-        double timeAfterBoot = vm.getTimeAfterBooting();
-        return computeBill(vm, timeAfterBoot);
+        return billByChargeCount(vm, vm.getTimeAfterBooting());
     }
 
     @Override
     public BigDecimal billSingleVmUntil(VMex vm, double endTime) {
-        double time = vm.getEndTime() < 0 || vm.getEndTime() > endTime ? endTime - vm.getStartTime() : vm
-                .getTimeAfterBooting();
-        return computeBill(vm, time);
+        return billByChargeCount(vm, billedTimeUntil(vm, endTime));
     }
 
-    private BigDecimal computeBill(final VMex vm, double duration) {
+    @Override
+    protected long chargeCount(final double duration) {
         int chargeCount = (int) duration / HOUR + 1;
         if (duration == (int) duration && (int) duration % HOUR == 0) {
             chargeCount = (int) duration / HOUR;
         }
-
-        return prices.get(keyOf(vm)).multiply(BigDecimal.valueOf(chargeCount));
+        return chargeCount;
     }
 
     @Override
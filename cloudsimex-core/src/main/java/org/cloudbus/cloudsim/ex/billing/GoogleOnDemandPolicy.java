@@ -32,32 +32,37 @@ public class GoogleOnDemandPolicy extends BaseCustomerVmBillingPolicy {
 
     @Override
     public BigDecimal billSingleVm(final VMex vm) {
-        double timeAfterBoot = vm.getTimeAfterBooting();
-        return computeBill(vm, timeAfterBoot);
+        return computeBill(vm, vm.getTimeAfterBooting());
     }
 
     @Override
     public BigDecimal billSingleVmUntil(VMex vm, double endTime) {
-        double time = vm.getEndTime() < 0 || vm.getEndTime() > endTime ? endTime - vm.getStartTime() : vm
-                .getTimeAfterBooting();
-        return computeBill(vm, time);
+        return computeBill(vm, billedTimeUntil(vm, endTime));
     }
 
     public BigDecimal computeBill(final VMex vm, double duration) {
-        BigDecimal pricePerMin = null;
-        try {
-            pricePerMin = prices.get(keyOf(vm)).divide(BigDecimal.valueOf(60));
-        } catch (ArithmeticException ex) {
-            pricePerMin = BigDecimal.valueOf(prices.get(keyOf(vm)).doubleValue() / 60);
-        }
+        return billByChargeCount(vm, duration);
+    }
 
+    @Override
+    protected long chargeCount(final double duration) {
         int chargeCount = (int) duration / MINUTE + 1;
         if (duration == (int) duration && (int) duration % MINUTE == 0) {
             chargeCount = (int) duration / MINUTE;
         }
+        return Math.max(10, chargeCount);
+    }
 
-        chargeCount = Math.max(10, chargeCount);
-        return pricePerMin.multiply(BigDecimal.valueOf(chargeCount));
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.ex.billing.BaseCustomerVmBillingPolicy#
+     * chargesPerPrice()
+     */
+    @Override
+    protected int chargesPerPrice() {
+        // Hourly prices are charged per minute
+        return 60;
     }
 
     @Override
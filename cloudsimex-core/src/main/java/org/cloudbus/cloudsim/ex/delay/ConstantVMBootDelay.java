@@ -1,5 +1,8 @@
 package org.cloudbus.cloudsim.ex.delay;
 
+import java.util.Arrays;
+import java.util.List;
+
 import org.cloudbus.cloudsim.Vm;
 
 /**
@@ -27,4 +30,11 @@ public class ConstantVMBootDelay implements IVMBootDelayDistribution {
     public double getDelay(final Vm vm) {
         return delay;
     }
+
+    @Override
+    public double[] getDelays(final List<? extends Vm> vms) {
+        double[] result = new double[vms.size()];
+        Arrays.fill(result, delay);
+        return result;
+    }
 }
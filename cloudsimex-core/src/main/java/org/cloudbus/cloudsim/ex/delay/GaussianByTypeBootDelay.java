@@ -1,20 +1,26 @@
 package org.cloudbus.cloudsim.ex.delay;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.cloudbus.cloudsim.Vm;
-import org.cloudbus.cloudsim.ex.billing.BaseCustomerVmBillingPolicy;
+import org.cloudbus.cloudsim.ex.vm.VMMetadata;
 import org.cloudbus.cloudsim.ex.vm.VMex;
 import org.uncommons.maths.number.NumberGenerator;
+import org.uncommons.maths.random.DefaultSeedGenerator;
 import org.uncommons.maths.random.GaussianGenerator;
 import org.uncommons.maths.random.MersenneTwisterRNG;
 import org.uncommons.maths.random.SeedException;
 import org.uncommons.maths.random.SeedGenerator;
 
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
 /**
  * A boot delay generator, which for a given vm (specified by type and OS)
  * returns a number, which is an instance of a normal distribution N(m, stdev).
@@ -28,12 +34,23 @@ import org.uncommons.maths.random.SeedGenerator;
  * evaluated and a precise match with key [vm.type, vm.OS] is not found, then
  * the mathching wilcards are used.
  * 
+ * <br/>
+ * <br/>
+ * 
+ * By default all mappings draw from a single random stream. Alternatively,
+ * each mapping can have its own stream, split deterministically from a single
+ * seed. Then the delays of the VMs of a given type do not depend on how many
+ * VMs of other types have been created before them.
  * 
  * @author nikolay.grozev
  * 
  */
 public class GaussianByTypeBootDelay implements IVMBootDelayDistribution {
 
+    /** Cached for VMs, which are not present in the mapping. */
+    private static final Object NO_GENERATOR = new Object();
+    private static final int SEED_LENGTH = 16;
+
     private final double defaultValue;
     private final Map<Pair<String, String>, NumberGenerator<Double>> delayGenerators = new HashMap<>();
 
@@ -105,7 +122,26 @@ public class GaussianByTypeBootDelay implements IVMBootDelayDistribution {
      */
     public GaussianByTypeBootDelay(final Map<Pair<String, String>, Pair<Double, Double>> delayDefs, final byte[] seed,
             final double defaultVal) {
-        this(delayDefs, seed, null, defaultVal);
+        this(delayDefs, seed, null, defaultVal, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param delayDefs
+     *            - a mapping of type [vm-type, OS] -> [m, stdev].
+     * @param seed
+     *            - a seed for the generator. If null, then no seed is used.
+     * @param defaultVal
+     *            - a value to be returned when evaluating VMs, which are not
+     *            present in the aforementioned mapping.
+     * @param independentStreams
+     *            - whether each mapping should have its own random stream,
+     *            derived from the seed.
+     */
+    public GaussianByTypeBootDelay(final Map<Pair<String, String>, Pair<Double, Double>> delayDefs, final byte[] seed,
+            final double defaultVal, final boolean independentStreams) {
+        this(delayDefs, seed, null, defaultVal, independentStreams);
     }
 
     /**
@@ -122,52 +158,130 @@ public class GaussianByTypeBootDelay implements IVMBootDelayDistribution {
      */
     public GaussianByTypeBootDelay(final Map<Pair<String, String>, Pair<Double, Double>> delayDefs,
             final SeedGenerator seedGen, final double defaultVal) {
-        this(delayDefs, null, seedGen, defaultVal);
+        this(delayDefs, null, seedGen, defaultVal, false);
+    }
+
+    /**
+     * Constructor.
+     * 
+     * @param delayDefs
+     *            - a mapping of type [vm-type, OS] -> [m, stdev].
+     * @param seedGen
+     *            - the seed generator to use. If null or erronous, then default
+     *            seed gen policy is used.
+     * @param defaultVal
+     *            - a value to be returned when evaluating VMs, which are not
+     *            present in the aforementioned mapping.
+     * @param independentStreams
+     *            - whether each mapping should have its own random stream,
+     *            derived from a single generated seed.
+     */
+    public GaussianByTypeBootDelay(final Map<Pair<String, String>, Pair<Double, Double>> delayDefs,
+            final SeedGenerator seedGen, final double defaultVal, final boolean independentStreams) {
+        this(delayDefs, null, seedGen, defaultVal, independentStreams);
     }
 
     private GaussianByTypeBootDelay(final Map<Pair<String, String>, Pair<Double, Double>> delayDefs, final byte[] seed,
-            SeedGenerator seedGen, final double defaultVal) {
-        Random merseneGenerator = null;
-        if (seed == null) {
-            try {
-                merseneGenerator = seedGen == null ? new MersenneTwisterRNG() : new MersenneTwisterRNG(seedGen);
-            } catch (SeedException e) {
-                merseneGenerator = new MersenneTwisterRNG();
+            SeedGenerator seedGen, final double defaultVal, final boolean independentStreams) {
+        this.defaultValue = defaultVal;
+
+        if (independentStreams) {
+            byte[] masterSeed = seed == null ? generateSeed(seedGen) : seed;
+            for (Map.Entry<Pair<String, String>, Pair<Double, Double>> entry : delayDefs.entrySet()) {
+                Random streamGenerator = new MersenneTwisterRNG(streamSeed(masterSeed, entry.getKey()));
+                this.delayGenerators.put(entry.getKey(), new GaussianGenerator(entry.getValue().getLeft(), entry
+                        .getValue().getRight(), streamGenerator));
             }
         } else {
-            merseneGenerator = new MersenneTwisterRNG(seed);
+            Random merseneGenerator = null;
+            if (seed == null) {
+                try {
+                    merseneGenerator = seedGen == null ? new MersenneTwisterRNG() : new MersenneTwisterRNG(seedGen);
+                } catch (SeedException e) {
+                    merseneGenerator = new MersenneTwisterRNG();
+                }
+            } else {
+                merseneGenerator = new MersenneTwisterRNG(seed);
+            }
+
+            for (Map.Entry<Pair<String, String>, Pair<Double, Double>> entry : delayDefs.entrySet()) {
+                this.delayGenerators.put(entry.getKey(), new GaussianGenerator(entry.getValue().getLeft(), entry
+                        .getValue().getRight(), merseneGenerator));
+            }
         }
+    }
 
-        this.defaultValue = defaultVal;
+    private static byte[] generateSeed(final SeedGenerator seedGen) {
+        if (seedGen != null) {
+            try {
+                return seedGen.generateSeed(SEED_LENGTH);
+            } catch (SeedException e) {
+                // Fall back to the default seed gen policy
+            }
+        }
+        return DefaultSeedGenerator.getInstance().generateSeed(SEED_LENGTH);
+    }
 
-        for (Map.Entry<Pair<String, String>, Pair<Double, Double>> entry : delayDefs.entrySet()) {
-            this.delayGenerators.put(entry.getKey(), new GaussianGenerator(entry.getValue().getLeft(), entry.getValue()
-                    .getRight(), merseneGenerator));
+    /**
+     * Derives the seed of the stream of a mapping from the master seed and the
+     * key of the mapping, so that it does not depend on the order of the
+     * mappings.
+     */
+    private static byte[] streamSeed(final byte[] masterSeed, final Pair<String, String> key) {
+        Hasher hasher = Hashing.md5().newHasher().putBytes(masterSeed);
+        for (String part : new String[] { key.getLeft(), key.getRight() }) {
+            hasher.putBoolean(part != null);
+            if (part != null) {
+                hasher.putInt(part.length()).putString(part, Charsets.UTF_8);
+            }
         }
+        return hasher.hash().asBytes();
     }
 
     @Override
     public double getDelay(final Vm vm) {
         double result = defaultValue;
         if (vm instanceof VMex) {
-            VMex vmex = (VMex) vm;
-            NumberGenerator<Double> gaussianGenerator = null;
-            Pair<String, String> key = BaseCustomerVmBillingPolicy.keyOf(vmex);
-            Pair<String, String> partialKey1 = ImmutablePair.of(vmex.getMetadata().getType(), (String) null);
-            Pair<String, String> partialKey2 = ImmutablePair.of((String) null, vmex.getMetadata().getOS());
-
-            if (delayGenerators.containsKey(key)) {
-                gaussianGenerator = delayGenerators.get(key);
-            } else if (delayGenerators.containsKey(partialKey1)) {
-                gaussianGenerator = delayGenerators.get(partialKey1);
-            } else if (delayGenerators.containsKey(partialKey2)) {
-                gaussianGenerator = delayGenerators.get(partialKey2);
-            }
-
+            NumberGenerator<Double> gaussianGenerator = getGenerator(((VMex) vm).getMetadata());
             if (gaussianGenerator != null) {
                 result = gaussianGenerator.nextValue();
             }
         }
         return result;
     }
+
+    @Override
+    public double[] getDelays(final List<? extends Vm> vms) {
+        double[] result = new double[vms.size()];
+        int i = 0;
+        for (Vm vm : vms) {
+            result[i++] = getDelay(vm);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the generator for the type and the OS of the VM. It is resolved
+     * once and cached in the metadata until the type or the OS change.
+     * 
+     * @param metadata
+     *            - the metadata of the VM. Must not be null.
+     * @return the generator or null, if the VM is not present in the mapping.
+     */
+    @SuppressWarnings("unchecked")
+    private NumberGenerator<Double> getGenerator(final VMMetadata metadata) {
+        Object resolved = metadata.getResolved(this);
+        if (resolved == null) {
+            NumberGenerator<Double> gaussianGenerator = delayGenerators.get(metadata.getTypeAndOS());
+            if (gaussianGenerator == null) {
+                gaussianGenerator = delayGenerators.get(ImmutablePair.of(metadata.getType(), (String) null));
+            }
+            if (gaussianGenerator == null) {
+                gaussianGenerator = delayGenerators.get(ImmutablePair.of((String) null, metadata.getOS()));
+            }
+            resolved = gaussianGenerator == null ? NO_GENERATOR : gaussianGenerator;
+            metadata.setResolved(this, resolved);
+        }
+        return resolved == NO_GENERATOR ? null : (NumberGenerator<Double>) resolved;
+    }
 }
@@ -1,5 +1,7 @@
 package org.cloudbus.cloudsim.ex.delay;
 
+import java.util.List;
+
 import org.cloudbus.cloudsim.Vm;
 
 /**
@@ -19,4 +21,16 @@ public interface IVMBootDelayDistribution {
      */
     public double getDelay(final Vm vm);
 
+    /**
+     * Returns the booting times of the parameter VMs, e.g. of VMs created at
+     * the same time. The result is the same as calling
+     * {@link IVMBootDelayDistribution#getDelay(Vm)} for each of the VMs in
+     * order.
+     * 
+     * @param vms
+     *            - the VMs to check for. Must not be null or contain null.
+     * @return the times, in the order of the VMs.
+     */
+    public double[] getDelays(final List<? extends Vm> vms);
+
 }
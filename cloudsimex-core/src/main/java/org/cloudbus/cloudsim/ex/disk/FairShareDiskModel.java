@@ -0,0 +1,20 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+/**
+ * A disk performance model, which divides the IO MIPS of the harddisk evenly
+ * among the cloudlets using it, regardless of how many they are. This is the
+ * default model of {@link HddPe}.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class FairShareDiskModel implements IDiskPerformanceModel {
+
+    /** A shared instance. The model is stateless. */
+    public static final FairShareDiskModel INSTANCE = new FairShareDiskModel();
+
+    @Override
+    public double getCloudletIOMips(final double diskMips, final int queueDepth) {
+        return diskMips / queueDepth;
+    }
+}
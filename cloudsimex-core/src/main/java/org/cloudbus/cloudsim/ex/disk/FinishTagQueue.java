@@ -0,0 +1,265 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.Arrays;
+
+/**
+ * A priority queue of cloudlets, which share a resource (e.g. the CPUs of a VM
+ * or a harddisk) in a processor sharing manner. Instead of updating the
+ * remaining work of every cloudlet as time passes, the queue keeps a virtual
+ * time - the amount of work served per unit of weight (e.g. per PE) since the
+ * queue was created. Upon entering the queue, every cloudlet gets a finish tag
+ * - the virtual time, at which its work will be completed. Thus the next
+ * completion is found by peeking at the head of the queue.
+ * 
+ * <br>
+ * <br>
+ * 
+ * The queue is a binary heap, whose entries know their positions. Thus
+ * insertion, removal and polling are O(log n), and peeking is O(1).
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+final class FinishTagQueue {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Entry[] heap = new Entry[INITIAL_CAPACITY];
+    private int size = 0;
+    private double virtualTime = 0;
+    /** The sums of finish tag * weight and of the weights of the entries. */
+    private double taggedWork = 0;
+    private double totalWeight = 0;
+
+    /**
+     * Returns the virtual time of the queue.
+     * 
+     * @return the virtual time of the queue.
+     */
+    public double getVirtualTime() {
+        return virtualTime;
+    }
+
+    /**
+     * Advances the virtual time of the queue.
+     * 
+     * @param workPerWeight
+     *            - the work served per unit of weight since the last advance.
+     */
+    public void advance(final double workPerWeight) {
+        virtualTime += workPerWeight;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the total work of the entries, which is still not served as per
+     * the current virtual time of the queue. Computed in constant time. Exact
+     * only if the queue contains no completed entries - i.e. with finish tags
+     * before the virtual time - which should have been polled.
+     * 
+     * @return the total remaining work of the entries.
+     */
+    public double getRemainingWork() {
+        return Math.max(0, taggedWork - virtualTime * totalWeight);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a cloudlet to the queue.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     * @param work
+     *            - the remaining work of the cloudlet.
+     * @param weight
+     *            - the weight of the cloudlet, e.g. its number of PEs. Must be
+     *            positive.
+     * @return the entry of the cloudlet in the queue.
+     */
+    public Entry add(final HddResCloudlet rcl, final double work, final double weight) {
+        Entry entry = new Entry(this, rcl, virtualTime + work / weight, weight);
+        offer(entry);
+        return entry;
+    }
+
+    /**
+     * Puts back an entry, which has been polled from this queue. The entry
+     * keeps its finish tag.
+     * 
+     * @param entry
+     *            - the entry to put back.
+     */
+    public void offer(final Entry entry) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        heap[size] = entry;
+        entry.pos = size;
+        size++;
+        siftUp(entry.pos);
+        taggedWork += entry.finishTag * entry.weight;
+        totalWeight += entry.weight;
+    }
+
+    /**
+     * Returns the entry with the smallest finish tag, without removing it.
+     * 
+     * @return the entry with the smallest finish tag, or null if the queue is
+     *         empty.
+     */
+    public Entry peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    /**
+     * Removes and returns the entry with the smallest finish tag.
+     * 
+     * @return the entry with the smallest finish tag, or null if the queue is
+     *         empty.
+     */
+    public Entry poll() {
+        Entry head = peek();
+        if (head != null) {
+            remove(head);
+        }
+        return head;
+    }
+
+    /**
+     * Removes an entry from the queue. Does nothing if the entry is not in the
+     * queue.
+     * 
+     * @param entry
+     *            - the entry to remove.
+     */
+    public void remove(final Entry entry) {
+        if (entry.queue != this || entry.pos < 0) {
+            return;
+        }
+        int idx = entry.pos;
+        size--;
+        Entry last = heap[size];
+        heap[size] = null;
+        entry.pos = -1;
+        if (size == 0) {
+            // Avoid accumulating rounding errors
+            taggedWork = 0;
+            totalWeight = 0;
+        } else {
+            taggedWork -= entry.finishTag * entry.weight;
+            totalWeight -= entry.weight;
+        }
+        if (idx != size) {
+            heap[idx] = last;
+            last.pos = idx;
+            siftDown(idx);
+            siftUp(last.pos);
+        }
+    }
+
+    private void siftUp(final int idx) {
+        int i = idx;
+        Entry entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].finishTag <= entry.finishTag) {
+                break;
+            }
+            heap[i] = heap[parent];
+            heap[i].pos = i;
+            i = parent;
+        }
+        heap[i] = entry;
+        entry.pos = i;
+    }
+
+    private void siftDown(final int idx) {
+        int i = idx;
+        Entry entry = heap[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].finishTag < heap[child].finishTag) {
+                child = right;
+            }
+            if (entry.finishTag <= heap[child].finishTag) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].pos = i;
+            i = child;
+        }
+        heap[i] = entry;
+        entry.pos = i;
+    }
+
+    /**
+     * An entry of a cloudlet in a {@link FinishTagQueue}.
+     * 
+     * @author nikolay.grozev
+     * 
+     */
+    static final class Entry {
+        private final FinishTagQueue queue;
+        private final HddResCloudlet rcl;
+        private final double finishTag;
+        private final double weight;
+        /** The virtual time, up to which the cloudlet's progress is synced. */
+        private double syncedAt;
+        private int pos = -1;
+
+        private Entry(final FinishTagQueue queue, final HddResCloudlet rcl, final double finishTag,
+                final double weight) {
+            this.queue = queue;
+            this.rcl = rcl;
+            this.finishTag = finishTag;
+            this.weight = weight;
+            this.syncedAt = queue.virtualTime;
+        }
+
+        public FinishTagQueue getQueue() {
+            return queue;
+        }
+
+        public HddResCloudlet getResCloudlet() {
+            return rcl;
+        }
+
+        public double getFinishTag() {
+            return finishTag;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+
+        /**
+         * Returns the work of the cloudlet, which is still not served as per
+         * the current virtual time of the queue.
+         * 
+         * @return the remaining work of the cloudlet.
+         */
+        public double getRemainingWork() {
+            return Math.max(0, (finishTag - queue.virtualTime) * weight);
+        }
+
+        /**
+         * Returns the work served since the last call of this method (or the
+         * creation of the entry) and marks it as synced.
+         * 
+         * @return the work served since the last sync.
+         */
+        public double sync() {
+            double served = (queue.virtualTime - syncedAt) * weight;
+            syncedAt = queue.virtualTime;
+            return served;
+        }
+    }
+}
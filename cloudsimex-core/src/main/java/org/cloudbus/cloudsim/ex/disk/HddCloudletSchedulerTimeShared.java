@@ -11,7 +11,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.logging.Level;
 
 import org.cloudbus.cloudsim.Cloudlet;
@@ -20,7 +19,8 @@ import org.cloudbus.cloudsim.Consts;
 import org.cloudbus.cloudsim.ResCloudlet;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.ex.util.CustomLog;
-import org.cloudbus.cloudsim.lists.ResCloudletList;
+
+import com.google.common.primitives.Doubles;
 
 /**
  * HddCloudletSchedulerTimeShared implements a policy of scheduling performed by
@@ -50,9 +50,85 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
     /** The current IO mips share. */
     private List<Double> currentIOMipsShare;
 
+    /**
+     * The current MIPS and IO MIPS shares as arrays. Used in all computations
+     * to avoid unboxing. Either the arrays passed to
+     * {@link #updateVmProcessing(double, double[], double[])}, or copies of
+     * the lists set via {@link #setCurrentMipsShare(List)} and
+     * {@link #setCurrentIOMipsShare(List)}.
+     */
+    private double[] mipsShareArray = new double[0];
+    private double[] iopsShareArray = new double[0];
+    /** Buffers for the copies of the lists. Kept to avoid reallocation. */
+    private double[] mipsShareBuffer = new double[0];
+    private double[] iopsShareBuffer = new double[0];
+
     /** The VM being scheduled. */
     private HddVm vm;
 
+    /** The lists of cloudlets, with the types of their implementations. */
+    private final ResCloudletSlotList<HddResCloudlet> execList = new ResCloudletSlotList<>();
+    private final ResCloudletSlotList<HddResCloudlet> pausedList = new ResCloudletSlotList<>();
+    private final ResCloudletRing<HddResCloudlet> finishedList = new ResCloudletRing<>();
+    private final ResCloudletRing<HddResCloudlet> failedList = new ResCloudletRing<>();
+
+    /**
+     * How many cloudlets with pending IO operations use each of the disks. For
+     * example disksToNumCloudlets[0] is the number of cloudlets using the disk
+     * getVm().getHost().getHddList()[0]. Maintained incrementally as cloudlets
+     * change their states.
+     */
+    private int[] disksToNumCloudlets;
+    /**
+     * A buffer for the state of {@link #disksToNumCloudlets} at the beginning
+     * of an update. Kept to avoid reallocation.
+     */
+    private int[] disksToNumCloudletsSnapshot;
+
+    /**
+     * If true, the incrementally maintained disk counters are verified against
+     * a full recount after every change. Used for testing purposes.
+     */
+    private boolean checkConsistency = false;
+
+    /**
+     * If true, the progress of the cloudlets is tracked with finish tag queues
+     * for the CPUs and for each of the disks, and the next event is estimated
+     * by peeking at their heads, instead of scanning all cloudlets.
+     */
+    private final boolean useFinishTagQueues;
+    /** The queue of cloudlets with pending CPU operations. */
+    private FinishTagQueue cpuQueue;
+    /** The queues of cloudlets with pending IO operations, per disk. */
+    private FinishTagQueue[] ioQueues;
+    /** The number of PEs used by the cloudlets in {@link #cpuQueue}. */
+    private int pesInUse;
+    /**
+     * Cloudlets without any pending operations, which are not in any queue and
+     * should be finished upon the next update.
+     */
+    private final List<HddResCloudlet> doneOutsideQueues = new ArrayList<>();
+
+    /**
+     * Running aggregates over the exec list - the remaining CPU and IO
+     * instructions as of the last update. With finish tag queues, only the
+     * instructions of cloudlets outside the queues are kept here, and the rest
+     * are taken from the queues.
+     */
+    private long execRemainingLength = 0;
+    private long execRemainingIOLength = 0;
+    /** The total RAM of the cloudlets in the exec list. */
+    private double execRam = 0;
+    /**
+     * If true, a resumed cloudlet is routed to the least contended replica of
+     * its data item, rather than the replica it used before the pause.
+     */
+    private boolean rebalancingOnResume = false;
+
+    /** Buffers, kept to avoid reallocation during updates. */
+    private final List<HddResCloudlet> completedBuffer = new ArrayList<>();
+    private final List<FinishTagQueue.Entry> deferredBuffer = new ArrayList<>();
+
     /**
      * Creates a new CloudletSchedulerTimeShared object. This method must be
      * invoked before starting the actual simulation.
@@ -61,15 +137,33 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      * @post $none
      */
     public HddCloudletSchedulerTimeShared() {
+        this(false);
+    }
+
+    /**
+     * Creates a new CloudletSchedulerTimeShared object. This method must be
+     * invoked before starting the actual simulation.
+     * 
+     * @param useFinishTagQueues
+     *            - if true, the progress of the cloudlets is tracked with
+     *            virtual time finish tags in priority queues. Then an update
+     *            takes O(log n) per completed cloudlet, rather than O(n). The
+     *            results are equivalent to those of the default mode, up to
+     *            rounding.
+     */
+    public HddCloudletSchedulerTimeShared(final boolean useFinishTagQueues) {
         super();
+        this.useFinishTagQueues = useFinishTagQueues;
 
-        // We replace the ArrayList from the parent with a LindedList, since we
-        // need better performance for insertion/deletion etc.
+        // We replace the ArrayLists from the parent with array backed lists,
+        // which allow removal by id in O(1). The order of the exec and paused
+        // cloudlets is not preserved. The finished and failed cloudlets are
+        // polled in FIFO order.
         cloudletWaitingList = new LinkedList<>();
-        cloudletExecList = new LinkedList<>();
-        cloudletPausedList = new LinkedList<>();
-        cloudletFinishedList = new LinkedList<>();
-        cloudletFailedList = new LinkedList<>();
+        cloudletExecList = execList;
+        cloudletPausedList = pausedList;
+        cloudletFinishedList = finishedList;
+        cloudletFailedList = failedList;
     }
 
     public HddVm getVm() {
@@ -80,6 +174,62 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         this.vm = vm;
     }
 
+    /**
+     * Returns if the incrementally maintained per-disk counters are verified
+     * against a full recount after every change.
+     * 
+     * @return if the per-disk counters are verified after every change.
+     */
+    public boolean isCheckConsistency() {
+        return checkConsistency;
+    }
+
+    /**
+     * Sets if the incrementally maintained per-disk counters should be
+     * verified against a full recount after every change. If they differ an
+     * {@link IllegalStateException} is thrown. This is expensive and should be
+     * used only for testing purposes.
+     * 
+     * @param checkConsistency
+     *            - if the per-disk counters should be verified.
+     */
+    public void setCheckConsistency(final boolean checkConsistency) {
+        this.checkConsistency = checkConsistency;
+    }
+
+    /**
+     * Returns if resumed cloudlets are routed to the least contended replica
+     * of their data items.
+     * 
+     * @return if resumed cloudlets are routed to the least contended replica.
+     */
+    public boolean isRebalancingOnResume() {
+        return rebalancingOnResume;
+    }
+
+    /**
+     * Sets if resumed cloudlets should be routed to the least contended
+     * replica of their data items. If not, a resumed cloudlet keeps using the
+     * harddisk it used before it was paused, if it is still available.
+     * 
+     * @param rebalancingOnResume
+     *            - if resumed cloudlets should be rebalanced among replicas.
+     */
+    public void setRebalancingOnResume(final boolean rebalancingOnResume) {
+        this.rebalancingOnResume = rebalancingOnResume;
+    }
+
+    /**
+     * Returns if the progress of the cloudlets is tracked with finish tag
+     * queues.
+     * 
+     * @return if the progress of the cloudlets is tracked with finish tag
+     *         queues.
+     */
+    public boolean isUsingFinishTagQueues() {
+        return useFinishTagQueues;
+    }
+
     /**
      * Returns the current IO Mips share.
      * 
@@ -97,6 +247,40 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     public void setCurrentIOMipsShare(final List<Double> currentIOMipsShare) {
         this.currentIOMipsShare = currentIOMipsShare;
+        iopsShareBuffer = copyToBuffer(currentIOMipsShare, iopsShareBuffer);
+        iopsShareArray = iopsShareBuffer;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.CloudletScheduler#setCurrentMipsShare(java.util
+     * .List)
+     */
+    @Override
+    protected void setCurrentMipsShare(final List<Double> currentMipsShare) {
+        super.setCurrentMipsShare(currentMipsShare);
+        mipsShareBuffer = copyToBuffer(currentMipsShare, mipsShareBuffer);
+        mipsShareArray = mipsShareBuffer;
+    }
+
+    /**
+     * Copies the values of the list into the buffer. If the buffer is not of
+     * the same size, a new one is created.
+     * 
+     * @param list
+     *            - the list to copy. If null, it is treated as empty.
+     * @param buffer
+     *            - the buffer to copy to.
+     * @return the buffer with the values of the list.
+     */
+    private static double[] copyToBuffer(final List<Double> list, final double[] buffer) {
+        int size = list == null ? 0 : list.size();
+        double[] result = buffer.length == size ? buffer : new double[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
     }
 
     /**
@@ -127,11 +311,48 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     public double updateVmProcessing(final double currentTime, final List<Double> mipsShare,
             final List<Double> iopsShare) {
-        CustomLog.printf(Level.FINEST, "\nupdateVmProcessing(currentTime=%f, mipsShare=%s,final iopsShare=%s)",
-                currentTime, mipsShare.toString(), iopsShare.toString());
-
         setCurrentMipsShare(mipsShare);
         setCurrentIOMipsShare(iopsShare);
+        return updateVmProcessing(currentTime);
+    }
+
+    /**
+     * Updates the processing of cloudlets running under management of this
+     * scheduler. Unlike {@link #updateVmProcessing(double, List, List)}, does
+     * not allocate memory in the steady state - i.e. if the same arrays are
+     * passed in consecutive calls.
+     * 
+     * @param currentTime
+     *            - current simulation time.
+     * @param mipsShare
+     *            - the MIPS share of each processor available to the
+     *            scheduler. Must not be modified until the next update.
+     * @param iopsShare
+     *            - the IO MIPS share of each disk available to the scheduler.
+     *            Must not be modified until the next update.
+     * @return time predicted completion time of the earliest finishing
+     *         cloudlet, or 0 if there is no next events
+     */
+    public double updateVmProcessing(final double currentTime, final double[] mipsShare, final double[] iopsShare) {
+        // Wrap the arrays as lists for the getters, only if they are new
+        if (mipsShare != mipsShareArray) {
+            mipsShareArray = mipsShare;
+            super.setCurrentMipsShare(Doubles.asList(mipsShare));
+        }
+        if (iopsShare != iopsShareArray) {
+            iopsShareArray = iopsShare;
+            currentIOMipsShare = Doubles.asList(iopsShare);
+        }
+        return updateVmProcessing(currentTime);
+    }
+
+    private double updateVmProcessing(final double currentTime) {
+        double[] mipsShare = mipsShareArray;
+        double[] iopsShare = iopsShareArray;
+        if (CustomLog.isLevelHighEnough(Level.FINEST)) {
+            CustomLog.printf(Level.FINEST, "\nupdateVmProcessing(currentTime=%f, mipsShare=%s,final iopsShare=%s)",
+                    currentTime, Arrays.toString(mipsShare), Arrays.toString(iopsShare));
+        }
 
         if (getCloudletExecList().isEmpty()) {
             setPreviousTime(currentTime);
@@ -140,14 +361,26 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
 
         double timeSpam = currentTime - getPreviousTime();
 
+        if (useFinishTagQueues) {
+            double nextEvent = updateQueuedProcessing(currentTime, mipsShare, iopsShare, timeSpam);
+            setPreviousTime(currentTime);
+            return nextEvent;
+        }
+
         double cpuCapacity = getCPUCapacity(mipsShare);
-        int[] disksToNumCloudlets = disksToNumCloudlets();
-        int[] disksToNumCopy = Arrays.copyOf(disksToNumCloudlets, disksToNumCloudlets.length);
-        for (ListIterator<HddResCloudlet> iter = this.<HddResCloudlet> getCloudletExecList().listIterator(); iter
-                .hasNext();) {
-            HddResCloudlet rcl = iter.next();
+
+        // All cloudlets progress with the capacities from the beginning of the
+        // update, while the counters are updated as IO operations complete
+        int[] disksToNum = getDisksToNumCloudlets();
+        int[] disksToNumAtStart = disksToNumCloudletsSnapshot;
+        System.arraycopy(disksToNum, 0, disksToNumAtStart, 0, disksToNum.length);
+        long remainingLengthSum = 0;
+        long remainingIOLengthSum = 0;
+        for (int i = 0; i < execList.size();) {
+            HddResCloudlet rcl = execList.get(i);
+            boolean usesDisk = usesDisk(rcl);
             long cpuFinishedSoFar = (long) (cpuCapacity * timeSpam * rcl.getNumberOfPes() * Consts.MILLION);
-            long ioFinishedSoFar = (long) (getIOCapacity(iopsShare, disksToNumCloudlets, rcl) * timeSpam
+            long ioFinishedSoFar = (long) (getIOCapacity(iopsShare, disksToNumAtStart, rcl) * timeSpam
                     * rcl.getNumberOfHdds() * Consts.MILLION);
 
             rcl.updateCloudletFinishedSoFar(cpuFinishedSoFar, ioFinishedSoFar);
@@ -155,42 +388,403 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
             // Check if it is finished now ... after we just updated it
             long remainingLength = rcl.getRemainingCloudletLength();
             long remainingIOLength = rcl.getRemainingCloudletIOLength();
+            if (usesDisk && remainingIOLength == 0) {
+                // The IO operations have just been completed
+                disksToNum[rcl.getHddIndex()]--;
+            }
             if (remainingLength == 0 && remainingIOLength == 0) {
+                execRam -= rcl.getCloudlet().getRam();
                 cloudletFinish(rcl);
-                iter.remove();
-
-                // Update the disksToNumCopy, since it is expensive to recompute
-                updateDisksToNumMapping(disksToNumCopy, rcl);
+                // The last cloudlet is moved to this position
+                execList.remove(i);
+            } else {
+                remainingLengthSum += remainingLength;
+                remainingIOLengthSum += remainingIOLength;
+                i++;
             }
         }
+        execRemainingLength = remainingLengthSum;
+        execRemainingIOLength = remainingIOLengthSum;
+        verifyDisksToNumCloudlets();
 
-        double nextEvent = computeNextEventTime(currentTime, mipsShare, iopsShare, disksToNumCopy);
+        double nextEvent = computeNextEventTime(currentTime, mipsShare, iopsShare, disksToNum);
         setPreviousTime(currentTime);
 
         return nextEvent;
     }
 
-    private void updateDisksToNumMapping(int[] disksToNumCopy, HddResCloudlet rcl) {
-        List<? extends HddPe> pes = getVm().getHost().getHddList();
-        DataItem dataItem = rcl.getCloudlet().getData();
-        if (dataItem != null && rcl.getRemainingCloudletIOLength() == 0) {
-            for (int i = 0; i < pes.size(); i++) {
-                // Does the cloudlet use the disk
-                if (pes.get(i).containsDataItem(dataItem.getId())) {
-                    disksToNumCopy[i]--;
-                    break;
+    /**
+     * Updates the processing of cloudlets with the finish tag queues. The
+     * virtual times of the queues are advanced with the capacities from the
+     * beginning of the update, and then only the cloudlets at the heads of the
+     * queues are examined.
+     * 
+     * @param currentTime
+     *            - the current simulation time.
+     * @param mipsShare
+     *            - the MIPS share of each processor.
+     * @param iopsShare
+     *            - the IOPS share of each disk.
+     * @param timeSpam
+     *            - the time since the previous update.
+     * @return the predicted time of the next event.
+     */
+    private double updateQueuedProcessing(final double currentTime, final double[] mipsShare,
+            final double[] iopsShare, final double timeSpam) {
+        initQueues();
+        int[] disksToNum = getDisksToNumCloudlets();
+
+        cpuQueue.advance(getCPUCapacity(mipsShare) * timeSpam);
+        for (int i = 0; i < ioQueues.length; i++) {
+            if (!ioQueues[i].isEmpty()) {
+                ioQueues[i].advance(getDiskCapacity(iopsShare, i) * timeSpam);
+            }
+        }
+
+        List<HddResCloudlet> completed = completedBuffer;
+        completed.addAll(doneOutsideQueues);
+        doneOutsideQueues.clear();
+        pollCompleted(cpuQueue, completed, disksToNum);
+        for (FinishTagQueue ioQueue : ioQueues) {
+            pollCompleted(ioQueue, completed, disksToNum);
+        }
+
+        for (HddResCloudlet rcl : completed) {
+            // Cloudlets, whose data is not on any disk, never finish their IO
+            if (rcl.isDone()) {
+                execList.remove(rcl);
+                execRam -= rcl.getCloudlet().getRam();
+                cloudletFinish(rcl);
+            }
+        }
+        completed.clear();
+        verifyDisksToNumCloudlets();
+
+        return computeNextEventTimeFromQueues(currentTime, mipsShare, iopsShare);
+    }
+
+    /**
+     * Removes from the queue all entries, whose work has been completed.
+     * Cloudlets, which are not left in any queue, are added to the list of
+     * completed ones.
+     * 
+     * @param queue
+     *            - the queue to poll.
+     * @param completed
+     *            - the list of completed cloudlets.
+     * @param disksToNum
+     *            - the counters of cloudlets per disk. Updated as the IO
+     *            operations complete.
+     */
+    private void pollCompleted(final FinishTagQueue queue, final List<HddResCloudlet> completed,
+            final int[] disksToNum) {
+        // The weights are at least 1, and thus an entry can have less than an
+        // instruction left only if its tag is within 1 from the virtual time
+        FinishTagQueue.Entry head;
+        while ((head = queue.peek()) != null && head.getFinishTag() - queue.getVirtualTime() < 1) {
+            queue.poll();
+            if (head.getRemainingWork() < 1) {
+                HddResCloudlet rcl = head.getResCloudlet();
+                if (queue == cpuQueue) {
+                    rcl.completeCpu();
+                    pesInUse -= rcl.getNumberOfPes();
+                } else {
+                    rcl.completeIO();
+                    disksToNum[rcl.getHddIndex()]--;
+                }
+                if (rcl.getCpuEntry() == null && rcl.getIoEntry() == null) {
+                    completed.add(rcl);
                 }
+            } else {
+                deferredBuffer.add(head);
+            }
+        }
+        for (FinishTagQueue.Entry entry : deferredBuffer) {
+            queue.offer(entry);
+        }
+        deferredBuffer.clear();
+    }
+
+    private double computeNextEventTimeFromQueues(final double currentTime, final double[] mipsShare,
+            final double[] iopsShare) {
+        double nextEvent = Double.MAX_VALUE;
+
+        double cpuCapacity = getCPUCapacity(mipsShare);
+        if (!cpuQueue.isEmpty() && cpuCapacity > 0) {
+            FinishTagQueue.Entry head = cpuQueue.peek();
+            nextEvent = Math.min(nextEvent, currentTime + (head.getFinishTag() - cpuQueue.getVirtualTime())
+                    / cpuCapacity);
+        }
+        for (int i = 0; i < ioQueues.length; i++) {
+            double ioCapacity = getDiskCapacity(iopsShare, i);
+            if (!ioQueues[i].isEmpty() && ioCapacity > 0) {
+                FinishTagQueue.Entry head = ioQueues[i].peek();
+                nextEvent = Math.min(nextEvent, currentTime + (head.getFinishTag() - ioQueues[i].getVirtualTime())
+                        / ioCapacity);
             }
         }
+
+        if (nextEvent != Double.MAX_VALUE && nextEvent - currentTime < CloudSim.getMinTimeBetweenEvents()) {
+            nextEvent = currentTime + CloudSim.getMinTimeBetweenEvents();
+        }
+        return nextEvent;
     }
 
-    private double computeNextEventTime(final double currentTime, final List<Double> mipsShare,
-            final List<Double> iopsShare, int[] disksToNumCloudlets) {
+    /**
+     * Returns the IOPS, which each of the cloudlets in the queue of a disk
+     * gets, as per the performance model of the disk.
+     * 
+     * @param iopsShare
+     *            - the IOPS share of each disk.
+     * @param hddIndex
+     *            - the index of the disk.
+     * @return the IOPS, which each of the cloudlets in the queue of the disk
+     *         gets.
+     */
+    private double getDiskCapacity(final double[] iopsShare, final int hddIndex) {
+        int numCloudlets = ioQueues[hddIndex].size();
+        return numCloudlets == 0 || hddIndex >= iopsShare.length ? 0 : getDiskModel(hddIndex).getCloudletIOMips(
+                iopsShare[hddIndex], numCloudlets);
+    }
+
+    /**
+     * Initialises the finish tag queues with the cloudlets from the exec list,
+     * if they have not been initialised or if the number of disks has changed
+     * (e.g. the VM has been moved).
+     * 
+     * @return if the queues were (re)initialised.
+     */
+    private boolean initQueues() {
+        int numHdds = getVm().getHost().getNumberOfHdds();
+        if (cpuQueue == null || ioQueues.length != numHdds) {
+            cpuQueue = new FinishTagQueue();
+            ioQueues = new FinishTagQueue[numHdds];
+            for (int i = 0; i < numHdds; i++) {
+                ioQueues[i] = new FinishTagQueue();
+            }
+            pesInUse = 0;
+            execRemainingLength = 0;
+            execRemainingIOLength = 0;
+            doneOutsideQueues.clear();
+            for (HddResCloudlet rcl : this.<HddResCloudlet> getCloudletExecList()) {
+                rcl.syncProgress();
+                rcl.setCpuEntry(null);
+                rcl.setIoEntry(null);
+                enqueue(rcl);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Puts a cloudlet from the exec list in the finish tag queues, as per its
+     * remaining operations.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     */
+    private void enqueue(final HddResCloudlet rcl) {
+        long remainingLength = rcl.getRemainingCloudletLength();
+        if (remainingLength > 0 && rcl.getNumberOfPes() > 0) {
+            rcl.setCpuEntry(cpuQueue.add(rcl, remainingLength, rcl.getNumberOfPes()));
+            pesInUse += rcl.getNumberOfPes();
+        } else {
+            execRemainingLength += remainingLength;
+        }
+        if (usesDisk(rcl) && rcl.getNumberOfHdds() > 0) {
+            rcl.setIoEntry(ioQueues[rcl.getHddIndex()].add(rcl, rcl.getRemainingCloudletIOLength(),
+                    rcl.getNumberOfHdds()));
+        } else {
+            execRemainingIOLength += rcl.getRemainingCloudletIOLength();
+        }
+        if (rcl.isDone()) {
+            doneOutsideQueues.add(rcl);
+        }
+    }
+
+    /**
+     * Removes a cloudlet from the finish tag queues, after syncing its
+     * progress.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     */
+    private void dequeue(final HddResCloudlet rcl) {
+        rcl.syncProgress();
+        FinishTagQueue.Entry cpuEntry = rcl.getCpuEntry();
+        if (cpuEntry != null) {
+            cpuEntry.getQueue().remove(cpuEntry);
+            pesInUse -= rcl.getNumberOfPes();
+            rcl.setCpuEntry(null);
+        } else {
+            execRemainingLength -= rcl.getRemainingCloudletLength();
+        }
+        FinishTagQueue.Entry ioEntry = rcl.getIoEntry();
+        if (ioEntry != null) {
+            ioEntry.getQueue().remove(ioEntry);
+            rcl.setIoEntry(null);
+        } else {
+            execRemainingIOLength -= rcl.getRemainingCloudletIOLength();
+        }
+        doneOutsideQueues.remove(rcl);
+    }
+
+    /**
+     * Returns if the cloudlet is counted in {@link #disksToNumCloudlets}, i.e.
+     * if it has pending IO operations on a known disk. Only cloudlets from the
+     * exec list are counted.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     * @return if the cloudlet is counted in {@link #disksToNumCloudlets}.
+     */
+    private static boolean usesDisk(final HddResCloudlet rcl) {
+        return rcl.getCloudlet().getData() != null && rcl.getHddIndex() >= 0
+                && rcl.getRemainingCloudletIOLength() > 0;
+    }
+
+    /**
+     * Notifies the host, before a cloudlet is added to an empty exec list, so
+     * that the VM is updated again.
+     */
+    private void activateVm() {
+        if (execList.isEmpty() && getVm() != null && getVm().getHost() != null) {
+            getVm().getHost().vmActivated(getVm());
+        }
+    }
+
+    /**
+     * Marks that a cloudlet has been added to the exec list.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     */
+    private void addedToExec(final HddResCloudlet rcl) {
+        // If the counters are (re)initialised, the recount includes the cloudlet
+        if (!initDisksToNumCloudlets() && usesDisk(rcl)) {
+            disksToNumCloudlets[rcl.getHddIndex()]++;
+        }
+        execRam += rcl.getCloudlet().getRam();
+        if (!useFinishTagQueues) {
+            execRemainingLength += rcl.getRemainingCloudletLength();
+            execRemainingIOLength += rcl.getRemainingCloudletIOLength();
+        } else if (!initQueues()) {
+            enqueue(rcl);
+        }
+        verifyDisksToNumCloudlets();
+    }
+
+    /**
+     * Marks that a cloudlet has been removed from the exec list.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     */
+    private void removedFromExec(final HddResCloudlet rcl) {
+        // If the counters are (re)initialised, the recount excludes the cloudlet
+        if (!initDisksToNumCloudlets() && usesDisk(rcl)) {
+            disksToNumCloudlets[rcl.getHddIndex()]--;
+        }
+        execRam -= rcl.getCloudlet().getRam();
+        if (!useFinishTagQueues) {
+            execRemainingLength -= rcl.getRemainingCloudletLength();
+            execRemainingIOLength -= rcl.getRemainingCloudletIOLength();
+        } else {
+            dequeue(rcl);
+            initQueues();
+        }
+        verifyDisksToNumCloudlets();
+    }
+
+    /**
+     * Returns the incrementally maintained counters of cloudlets per disk.
+     * 
+     * @return the incrementally maintained counters of cloudlets per disk.
+     */
+    private int[] getDisksToNumCloudlets() {
+        initDisksToNumCloudlets();
+        return disksToNumCloudlets;
+    }
+
+    /**
+     * Initialises the counters of cloudlets per disk with a full recount, if
+     * they have not been initialised or if the number of disks has changed
+     * (e.g. the VM has been moved).
+     * 
+     * @return if the counters were (re)initialised.
+     */
+    private boolean initDisksToNumCloudlets() {
+        int numHdds = getVm().getHost().getNumberOfHdds();
+        if (disksToNumCloudlets == null || disksToNumCloudlets.length != numHdds) {
+            disksToNumCloudlets = disksToNumCloudlets();
+            disksToNumCloudletsSnapshot = new int[numHdds];
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * If consistency checks are on, verifies that the incrementally maintained
+     * counters and aggregates (and the finish tag queues, if used) match a
+     * full recount.
+     * 
+     * @throws IllegalStateException
+     *             - if the counters do not match the recount.
+     */
+    private void verifyDisksToNumCloudlets() {
+        if (checkConsistency) {
+            int[] expected = disksToNumCloudlets();
+            if (!Arrays.equals(expected, getDisksToNumCloudlets())) {
+                throw new IllegalStateException("Inconsistent disk counters in the scheduler of VM " + getVm().getId()
+                        + ". Expected " + Arrays.toString(expected) + " but were "
+                        + Arrays.toString(getDisksToNumCloudlets()));
+            }
+            if (useFinishTagQueues && cpuQueue != null) {
+                int[] queued = new int[ioQueues.length];
+                for (int i = 0; i < ioQueues.length; i++) {
+                    queued[i] = ioQueues[i].size();
+                }
+                int expectedPesInUse = countPesInUse();
+                if (!Arrays.equals(expected, queued) || expectedPesInUse != pesInUse) {
+                    throw new IllegalStateException("Inconsistent finish tag queues in the scheduler of VM "
+                            + getVm().getId() + ". Expected " + Arrays.toString(expected) + " and "
+                            + expectedPesInUse + " PEs in use, but were " + Arrays.toString(queued) + " and "
+                            + pesInUse);
+                }
+            }
+            verifyExecAggregates();
+        }
+    }
+
+    private void verifyExecAggregates() {
+        long expectedLength = 0;
+        long expectedIOLength = 0;
+        double expectedRam = 0;
+        for (HddResCloudlet rcl : execList) {
+            // With queues, only the cloudlets outside them are aggregated here
+            if (!useFinishTagQueues || rcl.getCpuEntry() == null) {
+                expectedLength += rcl.getRemainingCloudletLength();
+            }
+            if (!useFinishTagQueues || rcl.getIoEntry() == null) {
+                expectedIOLength += rcl.getRemainingCloudletIOLength();
+            }
+            expectedRam += rcl.getCloudlet().getRam();
+        }
+        if (expectedLength != execRemainingLength || expectedIOLength != execRemainingIOLength
+                || Math.abs(expectedRam - execRam) > 0.001) {
+            throw new IllegalStateException("Inconsistent aggregates in the scheduler of VM " + getVm().getId()
+                    + ". Expected " + expectedLength + ", " + expectedIOLength + ", " + expectedRam + " but were "
+                    + execRemainingLength + ", " + execRemainingIOLength + ", " + execRam);
+        }
+    }
+
+    private double computeNextEventTime(final double currentTime, final double[] mipsShare,
+            final double[] iopsShare, final int[] disksToNumCloudlets) {
         // check finished cloudlets
         double nextEvent = Double.MAX_VALUE;
 
         double cpuCapacity = getCPUCapacity(mipsShare);
-        // int[] disksToNumCloudlets = disksToNumCloudlets();
 
         // estimate finish time of cloudlets
         for (HddResCloudlet rcl : this.<HddResCloudlet> getCloudletExecList()) {
@@ -241,126 +835,79 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
     // }
     // }
 
-    // private double getIOCapacity(final List<Double> mipsShare, final
-    // HddResCloudlet rcl) {
-    // DataItem dataItem = rcl.getCloudlet().getData();
-    // double result = 0;
-    // if (dataItem != null && rcl.getRemainingCloudletIOLength() > 0) {
-    // List<? extends HddPe> pes = getVm().getHost().getHddList();
-    //
-    // // Get the index of the disk, containing the data item
-    // int hddIndxInHost = -1;
-    // for (int i = 0; i < pes.size(); i++) {
-    // if (pes.get(i).containsDataItem(dataItem.getId())) {
-    // hddIndxInHost = i;
-    // break;
-    // }
-    // }
-    //
-    // if (hddIndxInHost >= 0) {
-    // HddPe hdd = pes.get(hddIndxInHost);
-    //
-    // int count = 0;
-    // for (HddResCloudlet resCloudlet : this.<HddResCloudlet>
-    // getCloudletExecList()) {
-    // DataItem cloudLetItem = resCloudlet.getCloudlet().getData();
-    // // Does the cloudlet use the disk
-    // if (cloudLetItem != null && hdd.containsDataItem(cloudLetItem.getId())
-    // && resCloudlet.getRemainingCloudletIOLength() > 0) {
-    // count++;
-    // }
-    // }
-    //
-    // // The result is the IOPS of the harddisk divided by the number
-    // // of cloudlets using it
-    // result = mipsShare.get(hddIndxInHost) / count;
-    // }
-    // }
-    // return result;
-    // }
-
-    private double getIOCapacity(final List<Double> mipsShare, int[] diskToCloudlets, final HddResCloudlet rcl) {
+    private double getIOCapacity(final double[] mipsShare, final int[] diskToCloudlets, final HddResCloudlet rcl) {
         DataItem dataItem = rcl.getCloudlet().getData();
         double result = 0;
         if (dataItem != null && rcl.getRemainingCloudletIOLength() > 0) {
-            List<? extends HddPe> pes = getVm().getHost().getHddList();
-
-            // Get the index of the disk, containing the data item
-            int hddIndxInHost = -1;
-            for (int i = 0; i < pes.size(); i++) {
-                if (pes.get(i).containsDataItem(dataItem.getId())) {
-                    hddIndxInHost = i;
-                    break;
-                }
-            }
+            // The index of the disk, containing the data item
+            int hddIndxInHost = rcl.getHddIndex();
 
             if (hddIndxInHost >= 0) {
-                // The result is the IOPS of the harddisk divided by the number
-                // of cloudlets using it
-                result = mipsShare.get(hddIndxInHost) / diskToCloudlets[hddIndxInHost];
+                // The result is the IOPS of the harddisk shared among the
+                // cloudlets using it, as per its performance model
+                result = getDiskModel(hddIndxInHost).getCloudletIOMips(mipsShare[hddIndxInHost],
+                        diskToCloudlets[hddIndxInHost]);
             }
         }
         return result;
     }
 
+    /**
+     * Returns the performance model of a harddisk of the host.
+     * 
+     * @param hddIndex
+     *            - the index of the harddisk in the host.
+     * @return the performance model of the harddisk.
+     */
+    private IDiskPerformanceModel getDiskModel(final int hddIndex) {
+        return getVm().getHost().getHddList().get(hddIndex).getPerformanceModel();
+    }
+
     /**
      * Returns how many cloudlets use each of the disks. For example result[0]
      * returns how many cloudlets use the disk
-     * getVm().getHost().getHddList()[0].
+     * getVm().getHost().getHddList()[0]. Performs a full recount over the exec
+     * list and thus should be used only for (re)initialisation and
+     * verification.
      * 
      * @return how many cloudlets use each of the disks.
      */
     private int[] disksToNumCloudlets() {
-        List<? extends HddPe> pes = getVm().getHost().getHddList();
-        int[] res = new int[pes.size()];
+        int[] res = new int[getVm().getHost().getNumberOfHdds()];
         for (HddResCloudlet rcl : this.<HddResCloudlet> getCloudletExecList()) {
             DataItem dataItem = rcl.getCloudlet().getData();
-            if (dataItem != null && rcl.getRemainingCloudletIOLength() > 0) {
-                for (int i = 0; i < pes.size(); i++) {
-                    // Does the cloudlet use the disk
-                    if (pes.get(i).containsDataItem(dataItem.getId())) {
-                        res[i]++;
-                        break;
-                    }
-                }
+            if (dataItem != null && rcl.getRemainingCloudletIOLength() > 0 && rcl.getHddIndex() >= 0) {
+                res[rcl.getHddIndex()]++;
             }
         }
         return res;
     }
 
-    // private void updateDiskToNumCloudlets(int[] disksToNum,
-    // List<HddResCloudlet> finished) {
-    // List<? extends HddPe> pes = getVm().getHost().getHddList();
-    // for (HddResCloudlet rcl : finished) {
-    // DataItem dataItem = rcl.getCloudlet().getData();
-    // if (dataItem != null && rcl.getRemainingCloudletIOLength() == 0) {
-    // for (int i = 0; i < pes.size(); i++) {
-    // // Does the cloudlet use the disk
-    // if (pes.get(i).containsDataItem(dataItem.getId())) {
-    // disksToNum[i]--;
-    // break;
-    // }
-    // }
-    // }
-    // }
-    // }
+    private double getCPUCapacity(final double[] mipsShare) {
+        return getCPUCapacity(mipsShare, 0);
+    }
 
-    private double getCPUCapacity(final List<Double> mipsShare) {
+    /**
+     * Returns the MIPS, which each of the PEs in use gets.
+     * 
+     * @param mipsShare
+     *            - the MIPS share of each processor.
+     * @param extraPes
+     *            - PEs of a cloudlet, which is not in the exec list yet, but
+     *            should be accounted for.
+     * @return the MIPS, which each of the PEs in use gets.
+     */
+    private double getCPUCapacity(final double[] mipsShare, final int extraPes) {
         double capacity = 0.0;
         int cpus = 0;
-        for (Double mips : mipsShare) {
+        for (double mips : mipsShare) {
             capacity += mips;
             if (mips > 0.0) {
                 cpus++;
             }
         }
 
-        int pesInUse = 0;
-        for (HddResCloudlet rcl : this.<HddResCloudlet> getCloudletExecList()) {
-            if (rcl.getRemainingCloudletLength() != 0) {
-                pesInUse += rcl.getNumberOfPes();
-            }
-        }
+        int pesInUse = (useFinishTagQueues && cpuQueue != null ? this.pesInUse : countPesInUse()) + extraPes;
 
         if (pesInUse > cpus) {
             capacity /= pesInUse;
@@ -370,6 +917,23 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         return capacity;
     }
 
+    /**
+     * Returns the number of PEs used by the cloudlets with pending CPU
+     * operations. Performs a full pass over the exec list.
+     * 
+     * @return the number of PEs used by the cloudlets with pending CPU
+     *         operations.
+     */
+    private int countPesInUse() {
+        int result = 0;
+        for (HddResCloudlet rcl : this.<HddResCloudlet> getCloudletExecList()) {
+            if (rcl.getRemainingCloudletLength() != 0) {
+                result += rcl.getNumberOfPes();
+            }
+        }
+        return result;
+    }
+
     /**
      * Cancels execution of a cloudlet.
      * 
@@ -382,17 +946,17 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
     @Override
     public HddCloudlet cloudletCancel(final int cloudletId) {
         // First, looks in the finished queue
-        int position = ResCloudletList.getPositionById(getCloudletFinishedList(), cloudletId);
+        HddResCloudlet rcl = finishedList.removeById(cloudletId);
 
-        if (position >= 0) {
-            return this.<HddResCloudlet> getCloudletFinishedList().remove(position).getCloudlet();
+        if (rcl != null) {
+            return rcl.getCloudlet();
         }
 
         // Then searches in the exec list
-        position = ResCloudletList.getPositionById(getCloudletExecList(), cloudletId);
+        rcl = execList.removeById(cloudletId);
 
-        if (position >= 0) {
-            HddResCloudlet rcl = this.<HddResCloudlet> getCloudletExecList().remove(position);
+        if (rcl != null) {
+            removedFromExec(rcl);
             if (rcl.isDone()) {
                 cloudletFinish(rcl);
             } else {
@@ -402,9 +966,9 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         }
 
         // Now, looks in the paused queue
-        position = ResCloudletList.getPositionById(getCloudletPausedList(), cloudletId);
-        if (position >= 0) {
-            return this.<HddResCloudlet> getCloudletPausedList().remove(position).getCloudlet();
+        rcl = pausedList.removeById(cloudletId);
+        if (rcl != null) {
+            return rcl.getCloudlet();
         }
 
         return null;
@@ -421,16 +985,16 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     @Override
     public boolean cloudletPause(final int cloudletId) {
-        int position = ResCloudletList.getPositionById(getCloudletExecList(), cloudletId);
+        // remove cloudlet from the exec list and put it in the paused list
+        HddResCloudlet rcl = execList.removeById(cloudletId);
 
-        if (position >= 0) {
-            // remove cloudlet from the exec list and put it in the paused list
-            HddResCloudlet rcl = this.<HddResCloudlet> getCloudletExecList().remove(position);
+        if (rcl != null) {
+            removedFromExec(rcl);
             if (rcl.isDone()) {
                 cloudletFinish(rcl);
             } else {
                 rcl.setCloudletStatus(HddCloudlet.PAUSED);
-                getCloudletPausedList().add(rcl);
+                pausedList.add(rcl);
             }
             return true;
         }
@@ -465,12 +1029,17 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
     // Changed
     @Override
     public double cloudletResume(final int cloudletId) {
-        int position = ResCloudletList.getPositionById(getCloudletPausedList(), cloudletId);
+        HddResCloudlet rgl = pausedList.removeById(cloudletId);
 
-        if (position >= 0) {
-            HddResCloudlet rgl = this.<HddResCloudlet> getCloudletPausedList().remove(position);
+        if (rgl != null) {
+            activateVm();
             rgl.setCloudletStatus(HddCloudlet.INEXEC);
-            getCloudletExecList().add(rgl);
+            // The data may have been moved, while the cloudlet was paused
+            if (rebalancingOnResume || !isReplicaAccessible(rgl, rgl.getHddIndex())) {
+                rgl.setHddIndex(hddIndexOf(rgl));
+            }
+            execList.add(rgl);
+            addedToExec(rgl);
 
             // calculate the expected time for cloudlet completion
             // first: how many PEs do we have?
@@ -478,9 +1047,9 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
             double remainingLength = rgl.getRemainingCloudletLength();
             double remainingIOLength = rgl.getRemainingCloudletIOLength();
             double estimatedFinishCPUTime = remainingLength == 0 ? Double.NaN : CloudSim.clock()
-                    + (remainingLength / (getCPUCapacity(getCurrentMipsShare()) * rgl.getNumberOfPes()));
+                    + (remainingLength / (getCPUCapacity(mipsShareArray) * rgl.getNumberOfPes()));
             double estimatedFinishIOTime = remainingIOLength == 0 ? Double.NaN : CloudSim.clock()
-                    + (remainingIOLength / (getIOCapacity(getCurrentIOMipsShare(), disksToNumCloudlets(), rgl) * rgl
+                    + (remainingIOLength / (getIOCapacity(iopsShareArray, getDisksToNumCloudlets(), rgl) * rgl
                             .getNumberOfHdds()));
 
             return nanMin(estimatedFinishCPUTime, estimatedFinishIOTime);
@@ -513,21 +1082,26 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         }
 
         if (containsDataFor(rcl)) {
-            getCloudletExecList().add(rcl);
+            activateVm();
+            rcl.setHddIndex(hddIndexOf(rcl));
 
             // use the current capacity to estimate the extra amount of
             // time to file transferring. It must be added to the cloudlet
-            // length
-            double extraSize = getCPUCapacity(getCurrentMipsShare()) * fileTransferTime;
+            // length. The capacity accounts for the new cloudlet, which is
+            // added to the exec list once its length is known.
+            int newPes = hddCloudlet.getCloudletLength() == 0 ? 0 : hddCloudlet.getNumberOfPes();
+            double extraSize = getCPUCapacity(mipsShareArray, newPes) * fileTransferTime;
             long cpuLength = (long) (hddCloudlet.getCloudletLength() + extraSize);
             long ioLength = hddCloudlet.getCloudletIOLength();
             hddCloudlet.setCloudletLength(cpuLength);
             hddCloudlet.setCloudletIOLength(ioLength);
+            execList.add(rcl);
+            addedToExec(rcl);
 
             double cpuEst = hddCloudlet.getCloudletLength() == 0 ? Double.NaN : hddCloudlet.getCloudletLength()
-                    / getCPUCapacity(getCurrentMipsShare());
+                    / getCPUCapacity(mipsShareArray);
             double ioEst = hddCloudlet.getCloudletIOLength() == 0 ? Double.NaN : hddCloudlet.getCloudletIOLength()
-                    / getIOCapacity(getCurrentIOMipsShare(), disksToNumCloudlets(), rcl);
+                    / getIOCapacity(iopsShareArray, getDisksToNumCloudlets(), rcl);
 
             return nanMin(cpuEst, ioEst);
         } else {
@@ -559,15 +1133,11 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     @Override
     public int getCloudletStatus(final int cloudletId) {
-        int position = ResCloudletList.getPositionById(getCloudletExecList(), cloudletId);
-        if (position >= 0) {
-            return getCloudletExecList().get(position).getCloudletStatus();
-        }
-        position = ResCloudletList.getPositionById(getCloudletExecList(), cloudletId);
-        if (position >= 0) {
-            return getCloudletPausedList().get(position).getCloudletStatus();
+        HddResCloudlet rcl = execList.getById(cloudletId);
+        if (rcl == null) {
+            rcl = pausedList.getById(cloudletId);
         }
-        return -1;
+        return rcl == null ? -1 : rcl.getCloudletStatus();
     }
 
     /**
@@ -620,10 +1190,8 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     @Override
     public HddCloudlet getNextFinishedCloudlet() {
-        if (!getCloudletFinishedList().isEmpty()) {
-            return this.<HddResCloudlet> getCloudletFinishedList().remove(0).getCloudlet();
-        }
-        return null;
+        HddResCloudlet rcl = finishedList.poll();
+        return rcl == null ? null : rcl.getCloudlet();
     }
 
     /**
@@ -633,10 +1201,8 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      * @return a failed cloudlet
      */
     public Cloudlet getNextFailedCloudlet() {
-        if (!getCloudletFailedList().isEmpty()) {
-            return getCloudletFailedList().remove(0).getCloudlet();
-        }
-        return null;
+        HddResCloudlet rcl = failedList.poll();
+        return rcl == null ? null : rcl.getCloudlet();
     }
 
     /**
@@ -660,7 +1226,8 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     @Override
     public Cloudlet migrateCloudlet() {
-        HddResCloudlet rgl = this.<HddResCloudlet> getCloudletExecList().remove(0);
+        HddResCloudlet rgl = execList.remove(0);
+        removedFromExec(rgl);
         rgl.finalizeCloudlet();
         return rgl.getCloudlet();
     }
@@ -685,7 +1252,7 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
      */
     @Override
     public double getTotalCurrentAvailableMipsForCloudlet(final ResCloudlet rcl, final List<Double> mipsShare) {
-        return getCPUCapacity(getCurrentMipsShare());
+        return getCPUCapacity(mipsShareArray);
     }
 
     /*
@@ -745,36 +1312,82 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         return bw;
     }
 
+    /**
+     * Returns the total remaining CPU instructions of the executing cloudlets,
+     * as of the last update. Maintained incrementally, and thus computed in
+     * constant time.
+     * 
+     * @return the total remaining CPU instructions of the executing cloudlets.
+     */
+    public double getTotalRemainingLength() {
+        double result = execRemainingLength;
+        if (useFinishTagQueues && cpuQueue != null) {
+            result += cpuQueue.getRemainingWork();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total remaining IO instructions of the executing cloudlets,
+     * as of the last update. Maintained incrementally, and thus computed in
+     * time proportional only to the number of disks.
+     * 
+     * @return the total remaining IO instructions of the executing cloudlets.
+     */
+    public double getTotalRemainingIOLength() {
+        double result = execRemainingIOLength;
+        if (useFinishTagQueues && cpuQueue != null) {
+            for (FinishTagQueue ioQueue : ioQueues) {
+                result += ioQueue.getRemainingWork();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the total RAM of the executing cloudlets.
+     * 
+     * @return the total RAM of the executing cloudlets.
+     */
+    public double getTotalExecRam() {
+        return execRam;
+    }
+
     public List<Double> getCurrentRequestedIOMips() {
         List<Double> ioMipsShare = new ArrayList<>();
         return ioMipsShare;
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     public void failAllCloudlets() {
-        for (ListIterator<HddResCloudlet> iter = this.<HddResCloudlet> getCloudletExecList().listIterator(); iter
-                .hasNext();) {
-            HddResCloudlet hddResCloudlet = iter.next();
-            iter.remove();
+        for (HddResCloudlet hddResCloudlet : execList) {
+            if (useFinishTagQueues) {
+                dequeue(hddResCloudlet);
+            }
             hddResCloudlet.setCloudletStatus(Cloudlet.FAILED);
-            ((List) cloudletFailedList).add(hddResCloudlet);
+            failedList.add(hddResCloudlet);
+        }
+        execList.clear();
+        if (disksToNumCloudlets != null) {
+            Arrays.fill(disksToNumCloudlets, 0);
         }
+        execRemainingLength = 0;
+        execRemainingIOLength = 0;
+        execRam = 0;
 
-        for (ListIterator<HddResCloudlet> iter = this.<HddResCloudlet> getCloudletPausedList().listIterator(); iter
-                .hasNext();) {
-            HddResCloudlet hddResCloudlet = iter.next();
-            iter.remove();
+        for (HddResCloudlet hddResCloudlet : pausedList) {
             hddResCloudlet.setCloudletStatus(Cloudlet.FAILED);
-            ((List) cloudletFailedList).add(hddResCloudlet);
+            failedList.add(hddResCloudlet);
         }
+        pausedList.clear();
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
     private void failCloudlet(final HddResCloudlet hddResCloudlet) {
-        getCloudletExecList().remove(hddResCloudlet);
-        getCloudletFailedList().remove(hddResCloudlet);
+        if (execList.remove(hddResCloudlet)) {
+            removedFromExec(hddResCloudlet);
+        }
+        failedList.remove(hddResCloudlet);
         hddResCloudlet.setCloudletStatus(Cloudlet.FAILED);
-        ((List) cloudletFailedList).add(hddResCloudlet);
+        failedList.add(hddResCloudlet);
     }
 
     private boolean containsDataFor(final HddResCloudlet rcl) {
@@ -782,9 +1395,8 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         boolean result = dataItem == null;
 
         if (dataItem != null) {
-            List<? extends HddPe> pes = getVm().getHost().getHddList();
-            for (HddPe pe : pes) {
-                if (pe.containsDataItem(dataItem.getId()) && vm.getHddsIds().contains(pe.getId())) {
+            for (int hddIndex : getVm().getHost().getHddIndices(dataItem.getId())) {
+                if (isReplicaAccessible(rcl, hddIndex)) {
                     result = true;
                     break;
                 }
@@ -794,10 +1406,71 @@ public class HddCloudletSchedulerTimeShared extends CloudletScheduler {
         return result;
     }
 
-    @SuppressWarnings({ "unchecked", "rawtypes" })
+    /**
+     * Returns if a harddisk stores the data of the cloudlet and can be used by
+     * the VM.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     * @param hddIndex
+     *            - the index of the harddisk in the host.
+     * @return if the harddisk stores the data of the cloudlet and can be used
+     *         by the VM.
+     */
+    private boolean isReplicaAccessible(final HddResCloudlet rcl, final int hddIndex) {
+        DataItem dataItem = rcl.getCloudlet().getData();
+        List<? extends HddPe> hdds = getVm().getHost().getHddList();
+        if (dataItem == null || hddIndex < 0 || hddIndex >= hdds.size()) {
+            return false;
+        }
+        HddPe hdd = hdds.get(hddIndex);
+        return hdd.containsDataItem(dataItem.getId()) && getVm().canUseHdd(hdd);
+    }
+
+    /**
+     * Returns the index of the harddisk (in the host's list of harddisks),
+     * which the cloudlet should use. If the data item of the cloudlet has
+     * several replicas, which the VM can use, the least contended one is
+     * selected - i.e. the one which would give the cloudlet the most IO MIPS,
+     * as per its share and performance model. Ties are broken by the number
+     * of cloudlets using the harddisk, and then by its index.
+     * 
+     * @param rcl
+     *            - the cloudlet.
+     * @return the index of the harddisk, which the cloudlet should use, or -1
+     *         if there is no such disk.
+     */
+    private int hddIndexOf(final HddResCloudlet rcl) {
+        DataItem dataItem = rcl.getCloudlet().getData();
+        if (dataItem == null) {
+            return -1;
+        }
+        int[] replicas = getVm().getHost().getHddIndices(dataItem.getId());
+        if (replicas.length == 1) {
+            return isReplicaAccessible(rcl, replicas[0]) ? replicas[0] : -1;
+        }
+
+        int[] disksToNum = getDisksToNumCloudlets();
+        int result = -1;
+        double bestMips = 0;
+        // The cloudlet is not in the exec list yet, and thus is not counted
+        for (int hddIndex : replicas) {
+            if (isReplicaAccessible(rcl, hddIndex)) {
+                double share = hddIndex < iopsShareArray.length ? iopsShareArray[hddIndex] : 0;
+                double mips = getDiskModel(hddIndex).getCloudletIOMips(share, disksToNum[hddIndex] + 1);
+                if (result < 0 || mips > bestMips
+                        || (mips == bestMips && disksToNum[hddIndex] < disksToNum[result])) {
+                    result = hddIndex;
+                    bestMips = mips;
+                }
+            }
+        }
+        return result;
+    }
+
     public void addFailedCloudlet(final HddCloudlet cl) throws Exception {
         cl.setCloudletStatus(Cloudlet.FAILED);
-        ((List) getCloudletFailedList()).add(new HddResCloudlet(cl));
+        failedList.add(new HddResCloudlet(cl));
     }
 
 }
@@ -57,9 +57,36 @@ public class HddDataCenter extends DatacenterEX {
      */
     @Override
     protected void processCloudletSubmit(final SimEvent ev, final boolean ack) {
-        try {
-            HddCloudlet cl = (HddCloudlet) ev.getData();
+        // Rejected cloudlets do not trigger an update. The check is repeated
+        // by submitCloudlet, but it takes constant time.
+        if (admitCloudlet((HddCloudlet) ev.getData())) {
+            super.processCloudletSubmit(ev, ack);
+        }
+    }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.cloudbus.cloudsim.ex.DatacenterEX#submitCloudlet(org.cloudbus.cloudsim
+     * .Cloudlet, boolean)
+     */
+    @Override
+    protected double submitCloudlet(final Cloudlet cloudlet, final boolean ack) {
+        return admitCloudlet((HddCloudlet) cloudlet) ? super.submitCloudlet(cloudlet, ack) : 0;
+    }
+
+    /**
+     * Checks if the VM of a cloudlet has enough RAM to execute it. If not, the
+     * cloudlet and all cloudlets in the VM fail, and the VM is marked as out of
+     * memory.
+     * 
+     * @param cl
+     *            - the cloudlet.
+     * @return if the cloudlet can be submitted to its VM.
+     */
+    private boolean admitCloudlet(final HddCloudlet cl) {
+        try {
             int userId = cl.getUserId();
             int vmId = cl.getVmId();
 
@@ -68,12 +95,7 @@ public class HddDataCenter extends DatacenterEX {
             HddCloudletSchedulerTimeShared scheduler = vm.getCloudletScheduler();
 
             if (!vm.isOutOfMemory()) {
-                List<HddResCloudlet> resCloudLets = scheduler.getCloudletExecList();
-
-                int vmUsedRam = 0;
-                for (HddResCloudlet res : resCloudLets) {
-                    vmUsedRam += res.getCloudlet().getRam();
-                }
+                double vmUsedRam = scheduler.getTotalExecRam();
 
                 // If we have used all of the resources of this VM
                 if (vmUsedRam + cl.getRam() > vm.getRam()) {
@@ -84,7 +106,7 @@ public class HddDataCenter extends DatacenterEX {
                     CustomLog.printf("VM/Server %d on host %d in data center %s(%d) is out of memory. "
                             + "It will not be further available", vm.getId(), host.getId(), getName(), getId());
                 } else {
-                    super.processCloudletSubmit(ev, ack);
+                    return true;
                 }
             } else {
                 scheduler.addFailedCloudlet(cl);
@@ -95,6 +117,7 @@ public class HddDataCenter extends DatacenterEX {
         } catch (Exception e) {
             CustomLog.logError(Level.SEVERE, "An error occurred when processing cloudlet sbmission", e);
         }
+        return false;
     }
 
     @Override
@@ -1,6 +1,10 @@
 package org.cloudbus.cloudsim.ex.disk;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Pe;
@@ -24,6 +28,23 @@ public class HddHost extends Host {
     private final List<? extends HddPe> hddList;
     /** A scheduler for the harddisk operations. */
     private final VmSchedulerWithIndependentPes<HddPe> hddIOScheduler;
+    /** Returned for data items, which are not stored on this host. */
+    private static final int[] NO_HDDS = new int[0];
+    /**
+     * An index from data item ids to the indices (in {@link #getHddList()}) of
+     * the harddisks storing the data item (i.e. its replicas), in increasing
+     * order.
+     */
+    private final Map<Integer, int[]> dataItemsToHddIdxs = new HashMap<>();
+    /**
+     * The VMs, which had cloudlets in their exec lists at the last update or
+     * got such since. Only they are updated - the update of an idle VM would
+     * only set its shares and previous time, which is done when it becomes
+     * active.
+     */
+    private final List<HddVm> activeVms = new ArrayList<>();
+    /** The time of the last update of the VMs. Negative if none. */
+    private double lastUpdateTime = -1;
 
     /**
      * Constructor.
@@ -44,6 +65,16 @@ public class HddHost extends Host {
         super(Id.pollId(HddHost.class), ramProvisioner, bwProvisioner, storage, peList, vmCPUScheduler);
         this.hddIOScheduler = vmHDDScheduler;
         this.hddList = hddList;
+        for (int i = 0; i < hddList.size(); i++) {
+            HddPe hdd = hddList.get(i);
+            hdd.setHost(this);
+            for (DataItem item : hdd.getData()) {
+                int[] idxs = getHddIndices(item.getId());
+                int[] newIdxs = Arrays.copyOf(idxs, idxs.length + 1);
+                newIdxs[idxs.length] = i;
+                dataItemsToHddIdxs.put(item.getId(), newIdxs);
+            }
+        }
         setFailed(false);
     }
 
@@ -55,20 +86,77 @@ public class HddHost extends Host {
     @Override
     public double updateVmsProcessing(final double currentTime) {
         double smallerTime = Double.MAX_VALUE;
+        lastUpdateTime = currentTime;
 
-        for (HddVm vm : getVmList()) {
-            List<Double> mips = getVmScheduler().getAllocatedMipsForVm(vm);
-            List<Double> iops = getHddIOScheduler().getAllocatedMipsForVm(vm);
-            double time = vm.updateVmProcessing(currentTime, mips, iops);
-
+        // Idle VMs are removed, by moving the active ones to the front
+        int numActive = 0;
+        for (int i = 0; i < activeVms.size(); i++) {
+            HddVm vm = activeVms.get(i);
+            double time = updateVmProcessing(vm, currentTime);
             if (time > 0.0 && time < smallerTime) {
                 smallerTime = time;
             }
+
+            if (vm.getCloudletScheduler().runningCloudlets() > 0) {
+                activeVms.set(numActive++, vm);
+            } else {
+                vm.setActive(false);
+            }
+        }
+        if (numActive < activeVms.size()) {
+            activeVms.subList(numActive, activeVms.size()).clear();
         }
 
         return smallerTime;
     }
 
+    /**
+     * Updates the processing of a VM with its current shares.
+     * 
+     * @param vm
+     *            - the VM.
+     * @param currentTime
+     *            - the current simulation time.
+     * @return the predicted completion time of the earliest finishing cloudlet
+     *         of the VM, or 0 if there are no next events.
+     */
+    private double updateVmProcessing(final HddVm vm, final double currentTime) {
+        // Uses the array based shares and indices, so that a steady state
+        // update does not allocate memory
+        double[] mips = vm.copyToMipsShareBuffer(getVmScheduler().getAllocatedMipsForVm(vm));
+        double[] iops = getHddIOScheduler().getAllocatedMipsArrayForVm(vm);
+        return vm.updateVmProcessing(currentTime, mips, iops);
+    }
+
+    /**
+     * Marks a VM as active. Must be called before a cloudlet is added to the
+     * empty exec list of the VM's scheduler. If the VM has not been updated
+     * since it became idle, it is updated to the time of the last update
+     * first, as the skipped updates would have done.
+     * 
+     * @param vm
+     *            - the VM.
+     */
+    void vmActivated(final HddVm vm) {
+        if (!vm.isActive()) {
+            if (lastUpdateTime > vm.getCloudletScheduler().getPreviousTime()) {
+                updateVmProcessing(vm, lastUpdateTime);
+            }
+            vm.setActive(true);
+            activeVms.add(vm);
+        }
+    }
+
+    /**
+     * Returns the number of active VMs - i.e. the VMs, which are updated by
+     * {@link #updateVmsProcessing(double)}.
+     * 
+     * @return the number of active VMs.
+     */
+    public int getNumberOfActiveVms() {
+        return activeVms.size();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -91,11 +179,42 @@ public class HddHost extends Host {
             deallocatePesForVm(hddVm);
             getHddIOScheduler().deallocatePesForVm(hddVm);
             hddVm.setHost(prevHost);
+        } else if (allocationOfHDD && hddVm.getCloudletScheduler().runningCloudlets() > 0) {
+            // A VM migrated with its cloudlets
+            vmActivated(hddVm);
         }
 
         return allocationOfHDD;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.Host#vmDestroy(org.cloudbus.cloudsim.Vm)
+     */
+    @Override
+    public void vmDestroy(final Vm vm) {
+        super.vmDestroy(vm);
+        if (vm != null && ((HddVm) vm).isActive()) {
+            ((HddVm) vm).setActive(false);
+            activeVms.remove(vm);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.Host#vmDestroyAll()
+     */
+    @Override
+    public void vmDestroyAll() {
+        super.vmDestroyAll();
+        for (HddVm vm : activeVms) {
+            vm.setActive(false);
+        }
+        activeVms.clear();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -180,6 +299,83 @@ public class HddHost extends Host {
         return getHddList().size();
     }
 
+    /**
+     * Returns the index (in {@link #getHddList()}) of the first harddisk, which
+     * stores the data item with the specified id.
+     * 
+     * @param dataItemId
+     *            - the id of the data item.
+     * @return the index of the first harddisk, which stores the data item, or
+     *         -1 if the data item is not stored on this host.
+     */
+    public int getHddIndex(final int dataItemId) {
+        int[] idxs = getHddIndices(dataItemId);
+        return idxs.length == 0 ? -1 : idxs[0];
+    }
+
+    /**
+     * Returns the indices (in {@link #getHddList()}) of all harddisks, which
+     * store a replica of the data item with the specified id.
+     * 
+     * @param dataItemId
+     *            - the id of the data item.
+     * @return the indices of the harddisks, which store the data item, in
+     *         increasing order. Empty if the data item is not stored on this
+     *         host. The result must not be modified.
+     */
+    public int[] getHddIndices(final int dataItemId) {
+        int[] idxs = dataItemsToHddIdxs.get(dataItemId);
+        return idxs == null ? NO_HDDS : idxs;
+    }
+
+    /**
+     * Updates the data item index, after a data item has been stored on one of
+     * the harddisks.
+     * 
+     * @param hdd
+     *            - the harddisk, where the item was stored.
+     * @param item
+     *            - the stored item.
+     */
+    void dataItemAdded(final HddPe hdd, final DataItem item) {
+        reindexDataItem(item);
+    }
+
+    /**
+     * Updates the data item index, after a data item has been removed from one
+     * of the harddisks.
+     * 
+     * @param hdd
+     *            - the harddisk, where the item was removed from.
+     * @param item
+     *            - the removed item.
+     */
+    void dataItemRemoved(final HddPe hdd, final DataItem item) {
+        reindexDataItem(item);
+    }
+
+    /**
+     * Recomputes the indices of the harddisks, which store the data item.
+     * Data items are rarely moved, so a scan over the harddisks suffices.
+     * 
+     * @param item
+     *            - the data item.
+     */
+    private void reindexDataItem(final DataItem item) {
+        int[] idxs = new int[getHddList().size()];
+        int count = 0;
+        for (int i = 0; i < getHddList().size(); i++) {
+            if (getHddList().get(i).containsDataItem(item.getId())) {
+                idxs[count++] = i;
+            }
+        }
+        if (count == 0) {
+            dataItemsToHddIdxs.remove(item.getId());
+        } else {
+            dataItemsToHddIdxs.put(item.getId(), Arrays.copyOf(idxs, count));
+        }
+    }
+
     /**
      * Returns the scheduler, that manages the distribution of the I/O
      * operations among VMs.
@@ -2,6 +2,7 @@ package org.cloudbus.cloudsim.ex.disk;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -18,6 +19,10 @@ import org.cloudbus.cloudsim.provisioners.PeProvisioner;
 public class HddPe extends Pe {
 
     private final Map<Integer, DataItem> data = new LinkedHashMap<>();
+    /** The host of this harddisk, notified when the stored data changes. */
+    private HddHost host;
+    /** Defines how the throughput is shared among concurrent cloudlets. */
+    private IDiskPerformanceModel performanceModel = FairShareDiskModel.INSTANCE;
 
     /**
      * Constr.
@@ -47,12 +52,14 @@ public class HddPe extends Pe {
     }
 
     /**
-     * Returns a view of the data items stored in this harddisk.
+     * Returns a read-only view of the data items stored in this harddisk. The
+     * items are changed through this harddisk, so that its host can keep
+     * track of them.
      * 
-     * @return a view of the data items stored in this harddisk.
+     * @return a read-only view of the data items stored in this harddisk.
      */
     public Collection<DataItem> getData() {
-        return data.values();
+        return Collections.unmodifiableCollection(data.values());
     }
 
     /**
@@ -79,4 +86,78 @@ public class HddPe extends Pe {
         return data.containsKey(id);
     }
 
+    /**
+     * Stores the data item on this harddisk. The host of the harddisk (if any)
+     * is notified, so that it can update its index of data items.
+     * 
+     * @param item
+     *            - the data item to store. Must not be null.
+     */
+    public void addDataItem(final DataItem item) {
+        data.put(item.getId(), item);
+        if (host != null) {
+            host.dataItemAdded(this, item);
+        }
+    }
+
+    /**
+     * Removes the data item with the specified id from this harddisk. The host
+     * of the harddisk (if any) is notified, so that it can update its index of
+     * data items.
+     * 
+     * @param id
+     *            - the id of the data item.
+     * @return the removed data item or null if it was not on this harddisk.
+     */
+    public DataItem removeDataItem(final int id) {
+        DataItem item = data.remove(id);
+        if (item != null && host != null) {
+            host.dataItemRemoved(this, item);
+        }
+        return item;
+    }
+
+    /**
+     * Returns the host of this harddisk, or null if it is not attached to a
+     * host.
+     * 
+     * @return the host of this harddisk, or null if it is not attached to a
+     *         host.
+     */
+    public HddHost getHost() {
+        return host;
+    }
+
+    /**
+     * Sets the host of this harddisk. Called by the host upon creation.
+     * 
+     * @param host
+     *            - the host of this harddisk.
+     */
+    void setHost(final HddHost host) {
+        this.host = host;
+    }
+
+    /**
+     * Returns the performance model of this harddisk. By default it is
+     * {@link FairShareDiskModel}.
+     * 
+     * @return the performance model of this harddisk.
+     */
+    public IDiskPerformanceModel getPerformanceModel() {
+        return performanceModel;
+    }
+
+    /**
+     * Sets the performance model of this harddisk. Should be set before the
+     * simulation starts, as the cloudlet schedulers do not reevaluate the
+     * progress of the running cloudlets upon change.
+     * 
+     * @param performanceModel
+     *            - the new performance model. Must not be null.
+     */
+    public void setPerformanceModel(final IDiskPerformanceModel performanceModel) {
+        this.performanceModel = performanceModel;
+    }
+
 }
@@ -0,0 +1,56 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+/**
+ * A disk performance model of a rotational harddisk. A single cloudlet reads
+ * its data sequentially and gets the full IO MIPS of the disk. Concurrent
+ * cloudlets interleave their requests, which makes the access pattern random
+ * and adds seeks. The total throughput with n cloudlets is the IO MIPS
+ * divided by (1 + penalty * (1 - 1/n)), and thus approaches IO MIPS / (1 +
+ * penalty) as the queue grows.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class HddRandomIODiskModel extends TabulatedDiskModel {
+
+    /** The queue depth up to which the factors are tabulated. */
+    public static final int DEFAULT_TABULATED_DEPTH = 64;
+
+    /**
+     * Constr.
+     * 
+     * @param randomIOPenalty
+     *            - the relative overhead of random access, compared to
+     *            sequential. Must not be negative.
+     */
+    public HddRandomIODiskModel(final double randomIOPenalty) {
+        this(randomIOPenalty, DEFAULT_TABULATED_DEPTH);
+    }
+
+    /**
+     * Constr.
+     * 
+     * @param randomIOPenalty
+     *            - the relative overhead of random access, compared to
+     *            sequential. Must not be negative.
+     * @param tabulatedDepth
+     *            - the queue depth up to which the factors are tabulated. For
+     *            greater depths the factor of this depth is used. Must be
+     *            positive.
+     */
+    public HddRandomIODiskModel(final double randomIOPenalty, final int tabulatedDepth) {
+        super(throughputFactors(randomIOPenalty, tabulatedDepth));
+    }
+
+    private static double[] throughputFactors(final double randomIOPenalty, final int tabulatedDepth) {
+        if (!(randomIOPenalty >= 0) || tabulatedDepth <= 0) {
+            throw new IllegalArgumentException("Invalid HDD model parameters: " + randomIOPenalty + ", "
+                    + tabulatedDepth);
+        }
+        double[] factors = new double[tabulatedDepth];
+        for (int i = 0; i < tabulatedDepth; i++) {
+            factors[i] = 1 / (1 + randomIOPenalty * (1 - 1.0 / (i + 1)));
+        }
+        return factors;
+    }
+}
@@ -16,6 +16,20 @@ public class HddResCloudlet extends ResCloudlet {
     /** The length of Cloudlet finished so far. */
     private long cloudletIOFinishedSoFar;
 
+    /**
+     * The index of the harddisk (in the host's list of harddisks) storing the
+     * data of the cloudlet. Negative if unknown.
+     */
+    private int hddIndex = -1;
+
+    /**
+     * The entries of the cloudlet in the finish tag queues of the scheduler,
+     * if it uses such. While the cloudlet is in a queue, its progress is not
+     * updated eagerly, but is synced from the queue when needed.
+     */
+    private FinishTagQueue.Entry cpuEntry;
+    private FinishTagQueue.Entry ioEntry;
+
     /**
      * Allocates a new ResCloudlet object upon the arrival of a Cloudlet object.
      * 
@@ -45,6 +59,82 @@ public class HddResCloudlet extends ResCloudlet {
         return getCloudlet().getNumberOfHddPes();
     }
 
+    /**
+     * Returns the index of the harddisk (in the host's list of harddisks),
+     * storing the data of the cloudlet.
+     * 
+     * @return the index of the harddisk storing the data of the cloudlet, or a
+     *         negative number if unknown.
+     */
+    public int getHddIndex() {
+        return hddIndex;
+    }
+
+    /**
+     * Sets the index of the harddisk (in the host's list of harddisks),
+     * storing the data of the cloudlet.
+     * 
+     * @param hddIndex
+     *            - the index of the harddisk. Negative if unknown.
+     */
+    public void setHddIndex(final int hddIndex) {
+        this.hddIndex = hddIndex;
+    }
+
+    FinishTagQueue.Entry getCpuEntry() {
+        return cpuEntry;
+    }
+
+    void setCpuEntry(final FinishTagQueue.Entry cpuEntry) {
+        this.cpuEntry = cpuEntry;
+    }
+
+    FinishTagQueue.Entry getIoEntry() {
+        return ioEntry;
+    }
+
+    void setIoEntry(final FinishTagQueue.Entry ioEntry) {
+        this.ioEntry = ioEntry;
+    }
+
+    /**
+     * Applies the work served by the finish tag queues, since the last sync.
+     * Does nothing if the cloudlet is not in any queue.
+     */
+    void syncProgress() {
+        if (cpuEntry != null) {
+            super.updateCloudletFinishedSoFar((long) (cpuEntry.sync() * Consts.MILLION));
+        }
+        if (ioEntry != null) {
+            cloudletIOFinishedSoFar += (long) (ioEntry.sync() * Consts.MILLION);
+        }
+    }
+
+    /**
+     * Marks the CPU operations of the cloudlet as completed, and detaches it
+     * from the CPU finish tag queue. Instructions, not accounted due to
+     * rounding, are completed as well.
+     */
+    void completeCpu() {
+        syncProgress();
+        long remaining = super.getRemainingCloudletLength();
+        if (remaining > 0) {
+            super.updateCloudletFinishedSoFar(remaining * Consts.MILLION);
+        }
+        cpuEntry = null;
+    }
+
+    /**
+     * Marks the IO operations of the cloudlet as completed, and detaches it
+     * from the IO finish tag queue. Instructions, not accounted due to
+     * rounding, are completed as well.
+     */
+    void completeIO() {
+        syncProgress();
+        cloudletIOFinishedSoFar += remainingIOLength() * Consts.MILLION;
+        ioEntry = null;
+    }
+
     /**
      * Updates the state of the aggreagted cloudlet.
      * 
@@ -78,12 +168,39 @@ public class HddResCloudlet extends ResCloudlet {
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.ResCloudlet#getRemainingCloudletLength()
+     */
+    @Override
+    public long getRemainingCloudletLength() {
+        syncProgress();
+        return super.getRemainingCloudletLength();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.cloudbus.cloudsim.ResCloudlet#finalizeCloudlet()
+     */
+    @Override
+    public void finalizeCloudlet() {
+        syncProgress();
+        super.finalizeCloudlet();
+    }
+
     /**
      * Returns how many instructions are left from the aggregated cloudlet.
      * 
      * @return how many instructions are left from the aggregated cloudlet.
      */
     public long getRemainingCloudletIOLength() {
+        syncProgress();
+        return remainingIOLength();
+    }
+
+    private long remainingIOLength() {
         long length = getCloudlet().getCloudletTotalIOLength() * Consts.MILLION - cloudletIOFinishedSoFar;
         return length < 0 ? 0 : (long) Math.floor(length / Consts.MILLION);
     }
@@ -26,6 +26,10 @@ public class HddVm extends MonitoredVMex {
     private double ioMips;
     private final LinkedHashSet<Integer> hdds = new LinkedHashSet<>();
     private boolean outOfMemory = false;
+    /** A buffer for the MIPS share of the VM, reused between updates. */
+    private double[] mipsShareBuffer = new double[0];
+    /** If the VM is in the list of active VMs of its host. */
+    private boolean active = false;
 
     /**
      * Constr.
@@ -152,6 +156,50 @@ public class HddVm extends MonitoredVMex {
         return 0.0;
     }
 
+    /**
+     * Updates the processing of the VM. Unlike
+     * {@link #updateVmProcessing(double, List, List)}, does not allocate
+     * memory in the steady state.
+     * 
+     * @param currentTime
+     *            - current simulation time.
+     * @param mipsShare
+     *            - the MIPS share of each Pe available to the scheduler.
+     * @param iopsShare
+     *            - the I/O MIPS share of each Harddisk available to the
+     *            scheduler.
+     * @return the predicted completion time of the earliest finishing
+     *         cloudlet, or 0 if there are no next events.
+     */
+    public double updateVmProcessing(final double currentTime, final double[] mipsShare, final double[] iopsShare) {
+        if (mipsShare != null && iopsShare != null) {
+            return getCloudletScheduler().updateVmProcessing(currentTime, mipsShare, iopsShare);
+        }
+        return 0.0;
+    }
+
+    /**
+     * Copies the MIPS share into a buffer of this VM, which is reused between
+     * the updates.
+     * 
+     * @param mipsShare
+     *            - the MIPS share of each Pe. May be null.
+     * @return the buffer with the MIPS share, or null if the share is null.
+     */
+    double[] copyToMipsShareBuffer(final List<Double> mipsShare) {
+        if (mipsShare == null) {
+            return null;
+        }
+        int size = mipsShare.size();
+        if (mipsShareBuffer.length != size) {
+            mipsShareBuffer = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            mipsShareBuffer[i] = mipsShare.get(i);
+        }
+        return mipsShareBuffer;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -195,6 +243,18 @@ public class HddVm extends MonitoredVMex {
         return result;
     }
 
+    /**
+     * Returns if this VM can use the harddisk. Unlike {@link #getHddsIds()},
+     * does not allocate memory.
+     * 
+     * @param hdd
+     *            - the harddisk.
+     * @return if this VM can use the harddisk.
+     */
+    public boolean canUseHdd(final HddPe hdd) {
+        return hdds.isEmpty() ? getHost() != null && hdd.getHost() == getHost() : hdds.contains(hdd.getId());
+    }
+
     @Override
     public List<Double> getCurrentRequestedMips() {
         if (getHost().getVmScheduler() instanceof VmSchedulerMapVmsToPes) {
@@ -234,7 +294,7 @@ public class HddVm extends MonitoredVMex {
 
             // Put zeros for the harddisks we don't have access to from this VM
             for (HddPe hdd : getHost().getHddList()) {
-                if (this.getHddsIds().contains(hdd.getId())) {
+                if (canUseHdd(hdd)) {
                     currentRequestedMips.add(getIoMips());
                 } else {
                     currentRequestedMips.add(0.0);
@@ -256,6 +316,14 @@ public class HddVm extends MonitoredVMex {
         }
     }
 
+    boolean isActive() {
+        return active;
+    }
+
+    void setActive(final boolean active) {
+        this.active = active;
+    }
+
     @Override
     public HddHost getHost() {
         return (HddHost) super.getHost();
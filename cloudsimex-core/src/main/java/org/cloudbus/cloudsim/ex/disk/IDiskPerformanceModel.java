@@ -0,0 +1,26 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+/**
+ * Defines how the throughput of a harddisk is shared among the cloudlets,
+ * which use it concurrently. Consulted by {@link HddCloudletSchedulerTimeShared}
+ * whenever it computes the IO progress of the cloudlets, and thus
+ * implementations should be cheap - e.g. backed by a precomputed table.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public interface IDiskPerformanceModel {
+
+    /**
+     * Returns the IO MIPS, which each of the cloudlets using a harddisk gets.
+     * 
+     * @param diskMips
+     *            - the IO MIPS of the harddisk, available to the VM.
+     * @param queueDepth
+     *            - the number of cloudlets, which use the harddisk
+     *            concurrently. Must be positive.
+     * @return the IO MIPS, which each of the cloudlets gets.
+     */
+    public double getCloudletIOMips(final double diskMips, final int queueDepth);
+
+}
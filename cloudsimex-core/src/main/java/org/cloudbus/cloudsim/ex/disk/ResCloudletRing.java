@@ -0,0 +1,144 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.cloudbus.cloudsim.ResCloudlet;
+
+/**
+ * A FIFO list of {@link ResCloudlet}s, backed by a circular array. Appending
+ * and removing the first element are O(1). Removal from the middle of the
+ * list shifts the following elements and is O(n).
+ * 
+ * @author nikolay.grozev
+ * 
+ * @param <T>
+ *            - the type of the cloudlets.
+ */
+public class ResCloudletRing<T extends ResCloudlet> extends AbstractList<T> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    /** The elements. The capacity is always a power of 2. */
+    private ResCloudlet[] elements = new ResCloudlet[INITIAL_CAPACITY];
+    private int head = 0;
+    private int size = 0;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final int idx) {
+        checkIndex(idx);
+        return (T) elements[slot(idx)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(final T rcl) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[slot(size)] = rcl;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends a cloudlet to the list. Only insertion at the end is supported.
+     */
+    @Override
+    public void add(final int idx, final T rcl) {
+        if (idx != size) {
+            throw new UnsupportedOperationException("Cloudlets can only be appended");
+        }
+        add(rcl);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(final int idx) {
+        checkIndex(idx);
+        T result = (T) elements[slot(idx)];
+        if (idx == 0) {
+            elements[head] = null;
+            head = slot(1);
+        } else {
+            for (int i = idx; i < size - 1; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return result;
+    }
+
+    /**
+     * Removes and returns the first cloudlet.
+     * 
+     * @return the first cloudlet, or null if the list is empty.
+     */
+    public T poll() {
+        return size == 0 ? null : remove(0);
+    }
+
+    /**
+     * Returns the position of the cloudlet with the specified id.
+     * 
+     * @param cloudletId
+     *            - the id of the cloudlet.
+     * @return the position of the cloudlet or -1 if it is not in the list.
+     */
+    public int indexOfId(final int cloudletId) {
+        for (int i = 0; i < size; i++) {
+            if (elements[slot(i)].getCloudletId() == cloudletId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Removes the cloudlet with the specified id.
+     * 
+     * @param cloudletId
+     *            - the id of the cloudlet.
+     * @return the removed cloudlet or null if it is not in the list.
+     */
+    public T removeById(final int cloudletId) {
+        int idx = indexOfId(cloudletId);
+        return idx < 0 ? null : remove(idx);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(elements, null);
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    private int slot(final int idx) {
+        return (head + idx) & (elements.length - 1);
+    }
+
+    private void checkIndex(final int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        }
+    }
+
+    private void grow() {
+        ResCloudlet[] grown = new ResCloudlet[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[slot(i)];
+        }
+        elements = grown;
+        head = 0;
+    }
+}
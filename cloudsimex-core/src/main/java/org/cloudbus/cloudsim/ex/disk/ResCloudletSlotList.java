@@ -0,0 +1,259 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+import org.cloudbus.cloudsim.ResCloudlet;
+
+/**
+ * An array backed list of {@link ResCloudlet}s, which does not preserve the
+ * order of its elements. Removal moves the last element into the freed slot,
+ * and thus is O(1). An index from cloudlet ids to slots allows O(1) lookup
+ * and removal by id.
+ * 
+ * <br>
+ * <br>
+ * 
+ * The cloudlets in the list must have unique ids. Removal during iteration is
+ * supported through the iterators - the element moved into the freed slot is
+ * visited next.
+ * 
+ * @author nikolay.grozev
+ * 
+ * @param <T>
+ *            - the type of the cloudlets.
+ */
+public class ResCloudletSlotList<T extends ResCloudlet> extends AbstractList<T> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+    /** Marks a free cell in the id index. */
+    private static final int NO_SLOT = -1;
+
+    private ResCloudlet[] slots = new ResCloudlet[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Open addressing hash index from cloudlet ids to slots. Its capacity is a
+     * power of 2 and is kept at least twice the size of the list.
+     */
+    private int[] indexIds = new int[INITIAL_CAPACITY * 2];
+    private int[] indexSlots = newIndexSlots(INITIAL_CAPACITY * 2);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(final int idx) {
+        checkIndex(idx);
+        return (T) slots[idx];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a cloudlet to the list.
+     * 
+     * @param rcl
+     *            - the cloudlet. Must not be null.
+     * @return true.
+     * @throws IllegalArgumentException
+     *             - if a cloudlet with the same id is already in the list.
+     */
+    @Override
+    public boolean add(final T rcl) {
+        int id = rcl.getCloudletId();
+        if (findCell(id) >= 0) {
+            throw new IllegalArgumentException("Cloudlet " + id + " is already in the list");
+        }
+        if (size == slots.length) {
+            slots = Arrays.copyOf(slots, size * 2);
+            rehash(indexIds.length * 2);
+        }
+        slots[size] = rcl;
+        putIndex(id, size);
+        size++;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Appends a cloudlet to the list. Only insertion at the end is supported.
+     */
+    @Override
+    public void add(final int idx, final T rcl) {
+        if (idx != size) {
+            throw new UnsupportedOperationException("Cloudlets can only be appended");
+        }
+        add(rcl);
+    }
+
+    /**
+     * Removes the cloudlet at the specified position. The last cloudlet is
+     * moved to this position.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public T remove(final int idx) {
+        checkIndex(idx);
+        T result = (T) slots[idx];
+        removeIndex(result.getCloudletId());
+        size--;
+        if (idx != size) {
+            slots[idx] = slots[size];
+            indexSlots[findCell(slots[idx].getCloudletId())] = idx;
+        }
+        slots[size] = null;
+        modCount++;
+        return result;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        int idx = indexOf(o);
+        if (idx >= 0) {
+            remove(idx);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int indexOf(final Object o) {
+        if (o instanceof ResCloudlet) {
+            int idx = indexOfId(((ResCloudlet) o).getCloudletId());
+            return idx >= 0 && slots[idx].equals(o) ? idx : -1;
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(final Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the position of the cloudlet with the specified id.
+     * 
+     * @param cloudletId
+     *            - the id of the cloudlet.
+     * @return the position of the cloudlet or -1 if it is not in the list.
+     */
+    public int indexOfId(final int cloudletId) {
+        int cell = findCell(cloudletId);
+        return cell < 0 ? -1 : indexSlots[cell];
+    }
+
+    /**
+     * Returns the cloudlet with the specified id.
+     * 
+     * @param cloudletId
+     *            - the id of the cloudlet.
+     * @return the cloudlet or null if it is not in the list.
+     */
+    public T getById(final int cloudletId) {
+        int idx = indexOfId(cloudletId);
+        return idx < 0 ? null : get(idx);
+    }
+
+    /**
+     * Removes the cloudlet with the specified id.
+     * 
+     * @param cloudletId
+     *            - the id of the cloudlet.
+     * @return the removed cloudlet or null if it is not in the list.
+     */
+    public T removeById(final int cloudletId) {
+        int idx = indexOfId(cloudletId);
+        return idx < 0 ? null : remove(idx);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(slots, 0, size, null);
+        Arrays.fill(indexSlots, NO_SLOT);
+        size = 0;
+        modCount++;
+    }
+
+    private void checkIndex(final int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        }
+    }
+
+    private static int[] newIndexSlots(final int capacity) {
+        int[] result = new int[capacity];
+        Arrays.fill(result, NO_SLOT);
+        return result;
+    }
+
+    private static int hash(final int id, final int mask) {
+        // Spread consecutive ids over the index
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Returns the cell of the index, which contains the id, or -1.
+     */
+    private int findCell(final int id) {
+        int mask = indexIds.length - 1;
+        for (int cell = hash(id, mask);; cell = (cell + 1) & mask) {
+            if (indexSlots[cell] == NO_SLOT) {
+                return -1;
+            } else if (indexIds[cell] == id) {
+                return cell;
+            }
+        }
+    }
+
+    private void putIndex(final int id, final int slot) {
+        int mask = indexIds.length - 1;
+        int cell = hash(id, mask);
+        while (indexSlots[cell] != NO_SLOT) {
+            cell = (cell + 1) & mask;
+        }
+        indexIds[cell] = id;
+        indexSlots[cell] = slot;
+    }
+
+    /**
+     * Removes an id from the index, shifting back the following entries of
+     * its cluster, so that no tombstones are needed.
+     */
+    private void removeIndex(final int id) {
+        int mask = indexIds.length - 1;
+        int free = findCell(id);
+        int cell = free;
+        while (true) {
+            cell = (cell + 1) & mask;
+            if (indexSlots[cell] == NO_SLOT) {
+                break;
+            }
+            int home = hash(indexIds[cell], mask);
+            // Move the entry back, if its home is not between the free cell
+            // and its current cell (cyclically)
+            if (free <= cell ? (home <= free || home > cell) : (home <= free && home > cell)) {
+                indexIds[free] = indexIds[cell];
+                indexSlots[free] = indexSlots[cell];
+                free = cell;
+            }
+        }
+        indexSlots[free] = NO_SLOT;
+    }
+
+    private void rehash(final int capacity) {
+        indexIds = new int[capacity];
+        indexSlots = newIndexSlots(capacity);
+        for (int i = 0; i < size; i++) {
+            putIndex(slots[i].getCloudletId(), i);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+/**
+ * A disk performance model of a solid state drive, whose throughput rises with
+ * the number of concurrent requests until the device is saturated. The IO MIPS
+ * of the harddisk are its saturated throughput. A single cloudlet gets only a
+ * fraction of them, and the throughput grows linearly with the queue depth up
+ * to the saturation depth.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class SsdQueueDepthDiskModel extends TabulatedDiskModel {
+
+    /**
+     * Constr.
+     * 
+     * @param singleRequestFactor
+     *            - the fraction of the saturated throughput, achieved by a
+     *            single cloudlet. Must be in the interval (0, 1].
+     * @param saturationDepth
+     *            - the queue depth, at which the throughput saturates. Must be
+     *            positive.
+     */
+    public SsdQueueDepthDiskModel(final double singleRequestFactor, final int saturationDepth) {
+        super(throughputFactors(singleRequestFactor, saturationDepth));
+    }
+
+    private static double[] throughputFactors(final double singleRequestFactor, final int saturationDepth) {
+        if (!(singleRequestFactor > 0 && singleRequestFactor <= 1) || saturationDepth <= 0) {
+            throw new IllegalArgumentException("Invalid SSD model parameters: " + singleRequestFactor + ", "
+                    + saturationDepth);
+        }
+        double[] factors = new double[saturationDepth];
+        for (int i = 0; i < saturationDepth; i++) {
+            factors[i] = saturationDepth == 1 ? 1 : singleRequestFactor + (1 - singleRequestFactor) * i
+                    / (saturationDepth - 1);
+        }
+        return factors;
+    }
+}
@@ -0,0 +1,61 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.Arrays;
+
+/**
+ * A disk performance model, defined by a table of throughput factors per queue
+ * depth. With n cloudlets using the harddisk concurrently, its total
+ * throughput is its IO MIPS multiplied by the n-th factor, and it is divided
+ * evenly among the cloudlets. For queue depths beyond the end of the table the
+ * last factor is used.
+ * 
+ * <br>
+ * <br>
+ * 
+ * The table can come from measurements (e.g. a benchmark of the modelled
+ * device), or can be computed by subclasses.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class TabulatedDiskModel implements IDiskPerformanceModel {
+
+    private final double[] throughputFactors;
+
+    /**
+     * Constr.
+     * 
+     * @param throughputFactors
+     *            - the throughput factors. The i-th element is the factor for
+     *            queue depth i + 1. Must not be empty, and must contain only
+     *            positive values.
+     */
+    public TabulatedDiskModel(final double... throughputFactors) {
+        if (throughputFactors.length == 0) {
+            throw new IllegalArgumentException("At least one throughput factor must be specified");
+        }
+        for (double factor : throughputFactors) {
+            if (!(factor > 0)) {
+                throw new IllegalArgumentException("Invalid throughput factors: " + Arrays.toString(throughputFactors));
+            }
+        }
+        this.throughputFactors = throughputFactors.clone();
+    }
+
+    /**
+     * Returns the factor, by which the IO MIPS of the harddisk are multiplied
+     * for the specified queue depth.
+     * 
+     * @param queueDepth
+     *            - the queue depth. Must be positive.
+     * @return the throughput factor for the queue depth.
+     */
+    public double getThroughputFactor(final int queueDepth) {
+        return throughputFactors[Math.min(queueDepth, throughputFactors.length) - 1];
+    }
+
+    @Override
+    public double getCloudletIOMips(final double diskMips, final int queueDepth) {
+        return diskMips * getThroughputFactor(queueDepth) / queueDepth;
+    }
+}
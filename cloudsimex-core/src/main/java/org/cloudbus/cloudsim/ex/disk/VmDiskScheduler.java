@@ -29,7 +29,7 @@ public class VmDiskScheduler extends VmSchedulerWithIndependentPes<HddPe> {
 
     @Override
     protected boolean doesVmUse(final Vm vm, final Pe pe) {
-        return (vm instanceof HddVm) ? ((HddVm) vm).getHddsIds().contains(pe.getId()) : false;
+        return (vm instanceof HddVm) && pe instanceof HddPe ? ((HddVm) vm).canUseHdd((HddPe) pe) : false;
     }
 
 }
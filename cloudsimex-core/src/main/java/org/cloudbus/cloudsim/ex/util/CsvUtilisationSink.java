@@ -0,0 +1,251 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import org.cloudbus.cloudsim.ex.IUtilisationSink;
+
+/**
+ * An {@link IUtilisationSink}, which writes the utilisations in a CSV file.
+ * The rows are formatted in batches, which are written by a background thread
+ * through a {@link FileChannel}. The batches are passed to the writer through
+ * a bounded queue, and thus the memory footprint is constant regardless of the
+ * length of the simulation - if the writer can not keep up, the simulation
+ * waits for it.
+ * 
+ * <br>
+ * <br>
+ * 
+ * A batch is handed to the writer, when it has reached a given number of rows,
+ * or when the simulation time has progressed with a given period since the
+ * last hand over.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class CsvUtilisationSink implements IUtilisationSink {
+
+    /** The header of the resulting file. */
+    public static final String HEADER = "time,vmId,cpu,ram,disk";
+
+    /** The default maximal number of rows in a batch. */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+    /** The default maximal number of batches, waiting to be written. */
+    public static final int DEFAULT_QUEUE_CAPACITY = 8;
+
+    /**
+     * How long to wait for a place in the queue, before checking if the
+     * writer is still running.
+     */
+    private static final long PUT_TIMEOUT_MILLIS = 100;
+
+    /** Marks the end of the batches. */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final int batchSize;
+    private final double flushPeriod;
+
+    private final StringBuilder batch = new StringBuilder();
+    private int batchRows = 0;
+    private double lastFlushTime = 0;
+
+    private final RandomAccessFile file;
+    private final BlockingQueue<ByteBuffer> queue;
+    private final Thread writer;
+    /** The reason the writer has failed or stopped, if any. */
+    private volatile Exception failure;
+    private boolean closed = false;
+
+    /**
+     * Constr.
+     * 
+     * @param file
+     *            - the file to write to. Its content is overwritten.
+     * @param flushPeriod
+     *            - the simulation time period, after which the recorded rows
+     *            are handed to the writer, even if the batch is not full. If
+     *            not positive, only full batches are written before closing.
+     * @throws IOException
+     *             - if the file can not be opened.
+     */
+    public CsvUtilisationSink(final File file, final double flushPeriod) throws IOException {
+        this(file, flushPeriod, DEFAULT_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constr.
+     * 
+     * @param file
+     *            - the file to write to. Its content is overwritten.
+     * @param flushPeriod
+     *            - the simulation time period, after which the recorded rows
+     *            are handed to the writer, even if the batch is not full. If
+     *            not positive, only full batches are written before closing.
+     * @param batchSize
+     *            - the maximal number of rows in a batch. Must be positive.
+     * @param queueCapacity
+     *            - the maximal number of batches, waiting to be written. Must
+     *            be positive.
+     * @throws IOException
+     *             - if the file can not be opened.
+     */
+    public CsvUtilisationSink(final File file, final double flushPeriod, final int batchSize,
+            final int queueCapacity) throws IOException {
+        if (batchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Invalid batch size " + batchSize + " or queue capacity "
+                    + queueCapacity);
+        }
+        this.flushPeriod = flushPeriod;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.file = new RandomAccessFile(file, "rw");
+        this.file.setLength(0);
+        batch.append(HEADER).append('\n');
+
+        writer = new Thread(new Writer(this.file.getChannel()), "Utilisation writer: " + file.getName());
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void record(final double time, final int vmId, final double cpuUtil, final double ramUtil,
+            final double diskUtil) {
+        checkOpen();
+        batch.append(time).append(',').append(vmId).append(',').append(cpuUtil).append(',').append(ramUtil)
+                .append(',').append(diskUtil).append('\n');
+        batchRows++;
+        if (batchRows >= batchSize) {
+            handOver();
+        }
+    }
+
+    @Override
+    public void recordCompleted(final double time) {
+        checkOpen();
+        if (flushPeriod > 0 && time - lastFlushTime >= flushPeriod) {
+            lastFlushTime = time;
+            handOver();
+        }
+    }
+
+    /**
+     * Writes the pending rows, waits for the writer to complete, and closes
+     * the file.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            handOver();
+            put(END);
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                CustomLog.logError(Level.SEVERE, "Could not close the utilisation file", e);
+            }
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Could not write the utilisations", failure);
+        }
+    }
+
+    private void handOver() {
+        if (batch.length() > 0) {
+            put(ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.US_ASCII)));
+            batch.setLength(0);
+            batchRows = 0;
+        }
+    }
+
+    /**
+     * Queues a batch for the writer. Waits while the queue is full, unless the
+     * writer has stopped.
+     */
+    private void put(final ByteBuffer buffer) {
+        try {
+            while (!queue.offer(buffer, PUT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (!writer.isAlive()) {
+                    throw new IllegalStateException("The utilisation writer has stopped", failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the utilisation writer", e);
+        }
+    }
+
+    /* pack access */Thread getWriter() {
+        return writer;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The sink has been closed");
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Could not write the utilisations", failure);
+        }
+    }
+
+    /**
+     * Writes the queued batches, gathering all that are available in a single
+     * write.
+     */
+    private class Writer implements Runnable {
+        private final FileChannel channel;
+
+        public Writer(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void run() {
+            List<ByteBuffer> buffers = new ArrayList<>();
+            boolean end = false;
+            while (!end) {
+                try {
+                    buffers.add(queue.take());
+                    queue.drainTo(buffers);
+                    end = buffers.get(buffers.size() - 1) == END;
+                    if (failure == null) {
+                        write(buffers.toArray(new ByteBuffer[buffers.size()]));
+                    }
+                } catch (InterruptedException e) {
+                    failure = e;
+                    end = true;
+                } catch (IOException e) {
+                    failure = e;
+                }
+                buffers.clear();
+            }
+        }
+
+        private void write(final ByteBuffer[] buffers) throws IOException {
+            long remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+        }
+    }
+}
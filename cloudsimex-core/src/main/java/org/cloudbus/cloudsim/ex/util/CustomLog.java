@@ -22,6 +22,7 @@ import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.core.CloudSim;
 
 import com.google.common.base.Function;
+import com.google.common.base.Supplier;
 
 /**
  * Replaces the primitive functionality of the standard CloudSim Log. Allows
@@ -140,6 +141,33 @@ public class CustomLog {
         print(DEFAULT_LEVEL, message);
     }
 
+    /**
+     * Prints the message returned by the supplier. The supplier is called only
+     * if the level is enabled. Thus messages, which are expensive to build, do
+     * not cost anything when they are not logged.
+     * 
+     * @param level
+     *            - the level to use. If null the default level is used.
+     * @param message
+     *            - the supplier of the message. Must not be null.
+     */
+    public static void print(final Level level, final Supplier<?> message) {
+        if (isLevelHighEnough(level)) {
+            LOGGER.log(level == null ? DEFAULT_LEVEL : level, String.valueOf(message.get()));
+        }
+    }
+
+    /**
+     * Prints the message returned by the supplier with the default level. The
+     * supplier is called only if the default level is enabled.
+     * 
+     * @param message
+     *            - the supplier of the message. Must not be null.
+     */
+    public static void print(final Supplier<?> message) {
+        print(DEFAULT_LEVEL, message);
+    }
+
     /**
      * Prints the concatenated messages.
      * 
@@ -250,7 +278,7 @@ public class CustomLog {
      * @param args
      */
     public static void printf(final String format, final Object... args) {
-        printf(DEFAULT_LEVEL, String.format(format, args));
+        printf(DEFAULT_LEVEL, format, args);
     }
 
     /**
@@ -0,0 +1,72 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.DatacenterBroker;
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Vm;
+
+/**
+ * A space of ids for CloudSim entities. Cloudlets, VMs, hosts, brokers and PEs
+ * (and their subclasses) get ids from separate counters, while all other
+ * classes share a common counter. Ids from different spaces are independent,
+ * and thus separate simulations can use separate spaces.
+ * 
+ * <br>
+ * <br>
+ * 
+ * The counter of a class is resolved once and then cached, so polling an id
+ * is a single atomic increment. This class is thread safe.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public final class IdSpace {
+
+    /** The classes, whose subclasses have their own counters. */
+    private static final Class<?>[] COUNTED_CLASSES = { Cloudlet.class, Vm.class, Host.class,
+            DatacenterBroker.class, Pe.class };
+
+    private final AtomicInteger[] counters = new AtomicInteger[COUNTED_CLASSES.length];
+    private final AtomicInteger globalCounter = new AtomicInteger(1);
+
+    /** Caches the counter of every class, which has been polled. */
+    private final ClassValue<AtomicInteger> classCounters = new ClassValue<AtomicInteger>() {
+        @Override
+        protected AtomicInteger computeValue(final Class<?> type) {
+            for (int i = 0; i < COUNTED_CLASSES.length; i++) {
+                if (COUNTED_CLASSES[i].isAssignableFrom(type)) {
+                    return counters[i];
+                }
+            }
+            return globalCounter;
+        }
+    };
+
+    /**
+     * Constr.
+     */
+    public IdSpace() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new AtomicInteger(1);
+        }
+    }
+
+    /**
+     * Returns a valid id for the specified class.
+     * 
+     * @param clazz
+     *            - the class of the object to get an id for. Must not be null.
+     * @return a valid id for the specified class.
+     */
+    public int pollId(final Class<?> clazz) {
+        int result = classCounters.get(clazz).getAndIncrement();
+        if (result < 0) {
+            throw new IllegalStateException("The generated id for class:" + clazz.getName()
+                    + " is negative. Possible integer overflow.");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,480 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An append-only time series store of VM utilisations. The records are kept
+ * in columns of primitive arrays - time, VM id, CPU, RAM and disk
+ * utilisation. The columns grow in chunks of fixed size, so that appending
+ * never copies the stored data. Optionally, the full chunks are spilled to a
+ * memory mapped file, and thus do not occupy the heap. The file is mapped in
+ * large regions, each holding many chunks, so that long simulations need only
+ * a few mappings.
+ * 
+ * <br>
+ * <br>
+ * 
+ * The records are grouped in ticks - the records of a tick have been taken at
+ * the same time. An index from VM ids to the rows of their records serves
+ * range queries per VM, without scanning the records of the other VMs.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class UtilisationHistory implements Closeable {
+
+    /** The index of the CPU utilisation. */
+    public static final int CPU = 0;
+    /** The index of the RAM utilisation. */
+    public static final int RAM = 1;
+    /** The index of the disk utilisation. */
+    public static final int DISK = 2;
+
+    /** The default number of records in a chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final int NUM_METRICS = 3;
+    /** The size of a spilled record - a double time, an int id, 3 doubles. */
+    private static final int RECORD_BYTES = 8 + 4 + 8 * NUM_METRICS;
+    /** The default size of a mapped region of the spill file. */
+    private static final int DEFAULT_REGION_BYTES = 128 * 1024 * 1024;
+
+    private final int chunkSize;
+    private final List<Chunk> chunks = new ArrayList<>();
+    private int size = 0;
+
+    private double[] tickTimes = new double[16];
+    /** The row of the first record of each tick. */
+    private int[] tickStarts = new int[16];
+    private int numTicks = 0;
+
+    /** The rows of the records of each VM, in increasing order. */
+    private final Map<Integer, IntArray> vmRows = new HashMap<>();
+
+    /** The file, where full chunks are spilled, or null. */
+    private final RandomAccessFile spillFile;
+    /** The path of the spill file, or null. */
+    private final File spillPath;
+    /** How many spilled chunks share a mapped region. */
+    private final int chunksPerRegion;
+    private final List<MappedByteBuffer> regions = new ArrayList<>();
+    private int numSpilledChunks = 0;
+
+    /**
+     * Constr. Keeps all records in memory.
+     */
+    public UtilisationHistory() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constr. Keeps all records in memory.
+     * 
+     * @param chunkSize
+     *            - the number of records in a chunk. Must be positive.
+     */
+    public UtilisationHistory(final int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.spillFile = null;
+        this.spillPath = null;
+        this.chunksPerRegion = 0;
+    }
+
+    /**
+     * Constr. Spills the full chunks to a memory mapped file.
+     * 
+     * @param chunkSize
+     *            - the number of records in a chunk. Must be positive.
+     * @param spillFile
+     *            - the file to spill the full chunks to. Its content is
+     *            overwritten, and it is deleted when the history is closed.
+     * @throws IOException
+     *             - if the file can not be opened.
+     */
+    public UtilisationHistory(final int chunkSize, final File spillFile) throws IOException {
+        this(chunkSize, spillFile, Math.max(1, DEFAULT_REGION_BYTES / (RECORD_BYTES * chunkSize)));
+    }
+
+    /**
+     * Constr. Spills the full chunks to a memory mapped file, mapped in
+     * regions of the specified number of chunks.
+     * 
+     * @param chunkSize
+     *            - the number of records in a chunk. Must be positive.
+     * @param spillFile
+     *            - the file to spill the full chunks to. Its content is
+     *            overwritten, and it is deleted when the history is closed.
+     * @param chunksPerRegion
+     *            - the number of chunks in a mapped region. Must be positive
+     *            and the region must not exceed 2GB.
+     * @throws IOException
+     *             - if the file can not be opened.
+     */
+    /* package access */UtilisationHistory(final int chunkSize, final File spillFile, final int chunksPerRegion)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+        if (chunksPerRegion <= 0 || (long) RECORD_BYTES * chunkSize * chunksPerRegion > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid number of chunks per region: " + chunksPerRegion);
+        }
+        this.chunkSize = chunkSize;
+        this.chunksPerRegion = chunksPerRegion;
+        this.spillPath = spillFile;
+        this.spillFile = new RandomAccessFile(spillFile, "rw");
+        this.spillFile.setLength(0);
+    }
+
+    /**
+     * Starts a new tick. The subsequently added records are taken at its time.
+     * 
+     * @param time
+     *            - the time of the tick. Must not be less than the time of the
+     *            previous tick.
+     */
+    public void startTick(final double time) {
+        if (numTicks > 0 && time < tickTimes[numTicks - 1]) {
+            throw new IllegalArgumentException("Tick time " + time + " is before the previous tick time "
+                    + tickTimes[numTicks - 1]);
+        }
+        if (numTicks == tickTimes.length) {
+            tickTimes = Arrays.copyOf(tickTimes, numTicks * 2);
+            tickStarts = Arrays.copyOf(tickStarts, numTicks * 2);
+        }
+        tickTimes[numTicks] = time;
+        tickStarts[numTicks] = size;
+        numTicks++;
+    }
+
+    /**
+     * Adds a record to the current tick.
+     * 
+     * @param vmId
+     *            - the id of the VM.
+     * @param cpuUtil
+     *            - the CPU utilisation.
+     * @param ramUtil
+     *            - the RAM utilisation.
+     * @param diskUtil
+     *            - the disk utilisation.
+     */
+    public void add(final int vmId, final double cpuUtil, final double ramUtil, final double diskUtil) {
+        if (numTicks == 0) {
+            throw new IllegalStateException("No tick has been started");
+        }
+        int offset = size % chunkSize;
+        if (offset == 0) {
+            spillLastChunk();
+            chunks.add(new Chunk(chunkSize));
+        }
+        Chunk chunk = chunks.get(chunks.size() - 1);
+        chunk.times[offset] = tickTimes[numTicks - 1];
+        chunk.vmIds[offset] = vmId;
+        chunk.utils[CPU][offset] = cpuUtil;
+        chunk.utils[RAM][offset] = ramUtil;
+        chunk.utils[DISK][offset] = diskUtil;
+
+        IntArray rows = vmRows.get(vmId);
+        if (rows == null) {
+            rows = new IntArray();
+            vmRows.put(vmId, rows);
+        }
+        rows.add(size);
+        size++;
+    }
+
+    /**
+     * Returns the number of records.
+     * 
+     * @return the number of records.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of ticks.
+     * 
+     * @return the number of ticks.
+     */
+    public int getNumberOfTicks() {
+        return numTicks;
+    }
+
+    /**
+     * Returns the time of a tick.
+     * 
+     * @param tick
+     *            - the index of the tick.
+     * @return the time of the tick.
+     */
+    public double getTickTime(final int tick) {
+        checkIndex(tick, numTicks);
+        return tickTimes[tick];
+    }
+
+    /**
+     * Returns the time of a record.
+     * 
+     * @param row
+     *            - the index of the record.
+     * @return the time of the record.
+     */
+    public double getTime(final int row) {
+        checkIndex(row, size);
+        return chunks.get(row / chunkSize).getTime(row % chunkSize);
+    }
+
+    /**
+     * Returns the VM id of a record.
+     * 
+     * @param row
+     *            - the index of the record.
+     * @return the VM id of the record.
+     */
+    public int getVmId(final int row) {
+        checkIndex(row, size);
+        return chunks.get(row / chunkSize).getVmId(row % chunkSize);
+    }
+
+    /**
+     * Returns a utilisation from a record.
+     * 
+     * @param row
+     *            - the index of the record.
+     * @param metric
+     *            - the utilisation - e.g. {@link #CPU}.
+     * @return the utilisation.
+     */
+    public double getUtil(final int row, final int metric) {
+        checkIndex(row, size);
+        return chunks.get(row / chunkSize).getUtil(row % chunkSize, metric);
+    }
+
+    /**
+     * Returns the recorded utilisations of a VM within a time interval. The
+     * result is in the format [times, cpu-utils, ram-utils, io-utils], where
+     * the elements are arrays of the same length.
+     * 
+     * @param vmId
+     *            - the id of the VM.
+     * @param fromTime
+     *            - the start of the interval, inclusive.
+     * @param toTime
+     *            - the end of the interval, inclusive.
+     * @return the recorded utilisations of the VM within the interval, in the
+     *         format [times, cpu-utils, ram-utils, io-utils].
+     */
+    public double[][] getVmUtilisation(final int vmId, final double fromTime, final double toTime) {
+        IntArray rows = vmRows.get(vmId);
+        int from = rows == null ? 0 : firstRowAtOrAfter(rows, fromTime);
+        int to = rows == null ? 0 : firstRowAtOrAfter(rows, Math.nextUp(toTime));
+        int length = Math.max(0, to - from);
+
+        double[][] result = new double[NUM_METRICS + 1][length];
+        for (int i = 0; i < length; i++) {
+            int row = rows.get(from + i);
+            Chunk chunk = chunks.get(row / chunkSize);
+            int offset = row % chunkSize;
+            result[0][i] = chunk.getTime(offset);
+            for (int m = 0; m < NUM_METRICS; m++) {
+                result[m + 1][i] = chunk.getUtil(offset, m);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the records of the ticks, starting from the specified one, to a map,
+     * whose entries are in the format [time, Map[vm-id, Array[cpu-util,
+     * ram-util, io-util]]]. If several ticks have the same time, the latter
+     * replaces the former in the map.
+     * 
+     * @param map
+     *            - the map to add to.
+     * @param fromTick
+     *            - the index of the first tick to add.
+     * @return the index of the next tick to add - i.e. the number of ticks.
+     */
+    public int appendTo(final Map<Double, Map<Integer, double[]>> map, final int fromTick) {
+        for (int tick = fromTick; tick < numTicks; tick++) {
+            int end = tick + 1 < numTicks ? tickStarts[tick + 1] : size;
+            Map<Integer, double[]> vmsUtil = new LinkedHashMap<>();
+            for (int row = tickStarts[tick]; row < end; row++) {
+                Chunk chunk = chunks.get(row / chunkSize);
+                int offset = row % chunkSize;
+                vmsUtil.put(chunk.getVmId(offset), new double[] { chunk.getUtil(offset, CPU),
+                        chunk.getUtil(offset, RAM), chunk.getUtil(offset, DISK) });
+            }
+            map.put(tickTimes[tick], vmsUtil);
+        }
+        return numTicks;
+    }
+
+    /**
+     * Returns the number of mapped regions of the spill file.
+     * 
+     * @return the number of mapped regions of the spill file.
+     */
+    /* package access */int getNumberOfMappedRegions() {
+        return regions.size();
+    }
+
+    /**
+     * Closes and deletes the spill file, if any. The spilled records remain
+     * readable, as their regions stay mapped.
+     */
+    @Override
+    public void close() throws IOException {
+        if (spillFile != null) {
+            spillFile.close();
+            if (spillPath.exists() && !spillPath.delete()) {
+                // Some platforms do not delete mapped files
+                spillPath.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Moves the last chunk to the spill file, if there is one. A new region of
+     * the file is mapped only when the current one is full.
+     */
+    private void spillLastChunk() {
+        if (spillFile == null || chunks.isEmpty()) {
+            return;
+        }
+        Chunk chunk = chunks.get(chunks.size() - 1);
+        int chunkBytes = RECORD_BYTES * chunkSize;
+        int regionBytes = chunkBytes * chunksPerRegion;
+        try {
+            int regionIdx = numSpilledChunks / chunksPerRegion;
+            if (regionIdx == regions.size()) {
+                regions.add(spillFile.getChannel().map(FileChannel.MapMode.READ_WRITE, (long) regionIdx * regionBytes,
+                        regionBytes));
+            }
+            MappedByteBuffer region = regions.get(regionIdx);
+            int base = (numSpilledChunks % chunksPerRegion) * chunkBytes;
+            ByteBuffer buffer = region.duplicate();
+            buffer.position(base);
+            for (int i = 0; i < chunkSize; i++) {
+                buffer.putDouble(chunk.times[i]);
+            }
+            for (int i = 0; i < chunkSize; i++) {
+                buffer.putInt(chunk.vmIds[i]);
+            }
+            for (int m = 0; m < NUM_METRICS; m++) {
+                for (int i = 0; i < chunkSize; i++) {
+                    buffer.putDouble(chunk.utils[m][i]);
+                }
+            }
+            chunk.spill(region, base);
+            numSpilledChunks++;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not spill utilisation records", e);
+        }
+    }
+
+    /**
+     * Returns the position (in the rows of a VM) of the first record, taken at
+     * or after the specified time.
+     */
+    private int firstRowAtOrAfter(final IntArray rows, final double time) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getTime(rows.get(mid)) < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static void checkIndex(final int idx, final int size) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index: " + idx + ", Size: " + size);
+        }
+    }
+
+    /**
+     * A chunk of records - either in the heap, or spilled to a region of the
+     * memory mapped file with the same columnar layout, starting from a base
+     * position.
+     */
+    private static final class Chunk {
+        private final int capacity;
+        private double[] times;
+        private int[] vmIds;
+        private double[][] utils;
+        private MappedByteBuffer buffer;
+        private int base;
+
+        private Chunk(final int capacity) {
+            this.capacity = capacity;
+            times = new double[capacity];
+            vmIds = new int[capacity];
+            utils = new double[NUM_METRICS][capacity];
+        }
+
+        private void spill(final MappedByteBuffer region, final int regionBase) {
+            buffer = region;
+            base = regionBase;
+            times = null;
+            vmIds = null;
+            utils = null;
+        }
+
+        private double getTime(final int offset) {
+            return buffer == null ? times[offset] : buffer.getDouble(base + offset * 8);
+        }
+
+        private int getVmId(final int offset) {
+            return buffer == null ? vmIds[offset] : buffer.getInt(base + capacity * 8 + offset * 4);
+        }
+
+        private double getUtil(final int offset, final int metric) {
+            return buffer == null ? utils[metric][offset] : buffer.getDouble(base + capacity * 12
+                    + (metric * capacity + offset) * 8);
+        }
+    }
+
+    /**
+     * A growable array of primitive ints.
+     */
+    private static final class IntArray {
+        private int[] elements = new int[8];
+        private int size = 0;
+
+        private void add(final int value) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = value;
+        }
+
+        private int get(final int idx) {
+            return elements[idx];
+        }
+
+        private int size() {
+            return size;
+        }
+    }
+}
@@ -1,10 +1,7 @@
 package org.cloudbus.cloudsim.ex.vm;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
-import org.apache.commons.lang3.mutable.MutableDouble;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.cloudbus.cloudsim.CloudletScheduler;
 
 /**
@@ -24,7 +21,8 @@ public class MonitoredVMex extends VMex {
 
     private MonitoredData data = new MonitoredData();
 
-    private double[] lastUtilMeasurement = new double[] { 0, 0, 0 };
+    /** The cached averaged utilisation. Recomputed in place. */
+    private final double[] lastUtilMeasurement = new double[MonitoredData.NUM_METRICS];
     private boolean newPerfDataAvailableFlag = false;
 
     /**
@@ -138,7 +136,8 @@ public class MonitoredVMex extends VMex {
      * Returns the current utilisation as a array of numbers in the range [0,1]
      * in the from [cp_util, ram_util, disk_util]. <strong>NOTE</strong> calling
      * methods should not modify the resulting array, as a shallow copy may be
-     * returned!
+     * returned! The same array is updated by the subsequent calls, so callers
+     * should copy it, if they need to keep the values.
      * 
      * @return the current utilisation as a array of numbers in the range [0,1]
      *         in the from [cp_util, ram_util, disk_util].
@@ -147,28 +146,53 @@ public class MonitoredVMex extends VMex {
         return getAveragedPerformance(getCurrentTime());
     }
 
+    /**
+     * Returns a percentile of the utilisation of a resource, over the
+     * observations of the last summary period.
+     * 
+     * @param metric
+     *            - the resource - e.g. {@link MonitoredData#CPU}.
+     * @param percentile
+     *            - the percentile. Must be in the interval [0, 100].
+     * @return the percentile of the utilisation, as a number in the range
+     *         [0,1].
+     */
+    public double getUtilPercentile(final int metric, final double percentile) {
+        if (summaryPeriodLength < 0) {
+            return 0;
+        }
+        cleanupOldData(getCurrentTime());
+        return data.computePercentile(metric, percentile);
+    }
+
+    /**
+     * Returns the exponentially weighted moving average of the utilisation of
+     * a resource, over all observations.
+     * 
+     * @param metric
+     *            - the resource - e.g. {@link MonitoredData#CPU}.
+     * @return the EWMA of the utilisation, as a number in the range [0,1].
+     */
+    public double getUtilEwma(final int metric) {
+        return data.getEwma(metric);
+    }
+
     private double[] getAveragedPerformance(final double currTime) {
-        // If there has not been any update - return the cached value
-        if (!newPerfDataAvailableFlag) {
-            return this.lastUtilMeasurement;
-        } else {
+        // If there has been an update - recompute the cached value in place
+        if (newPerfDataAvailableFlag) {
             cleanupOldData(currTime);
-            double[] result = computerAvgData();
-
-            // Cache the value for further usage
+            computerAvgData(lastUtilMeasurement);
             newPerfDataAvailableFlag = false;
-            lastUtilMeasurement = result;
-
-            return result;
         }
+        return this.lastUtilMeasurement;
     }
 
-    private double[] computerAvgData() {
-        double[] result = new double[] { 0, 0, 0 };
+    private void computerAvgData(final double[] result) {
         if (summaryPeriodLength >= 0) {
-            result = data.computerAvgData();
+            data.computerAvgData(result);
+        } else {
+            Arrays.fill(result, 0);
         }
-        return result;
     }
 
     private void cleanupOldData(final double currTime) {
@@ -201,173 +225,187 @@ public class MonitoredVMex extends VMex {
      * Represents the monitored utilisation data. This class should be used
      * outside this VM only for testing purposes.
      * 
+     * <br>
+     * <br>
+     * 
+     * The observations are kept in a growable ring buffer of parallel
+     * primitive arrays - one for the times and one per metric. The sums of the
+     * observations in the buffer and an exponentially weighted moving average
+     * (EWMA) of all observations are maintained as they are added or removed.
+     * Thus adding and cleaning up observations does not allocate memory,
+     * unless the buffer needs to grow.
+     * 
      * @author nikolay.grozev
      * 
      */
     public static class MonitoredData {
 
-        private static int MAX_POOL_SIZE = 500;
+        /** The index of the CPU utilisation metric. */
+        public static final int CPU = 0;
+        /** The index of the RAM utilisation metric. */
+        public static final int RAM = 1;
+        /** The index of the disk utilisation metric. */
+        public static final int DISK = 2;
+        /** The number of the monitored metrics. */
+        public static final int NUM_METRICS = 3;
 
-        /**
-         * We don't want to create new arrays every time - this creates too much
-         * garbage. That's why we need to keep a pool of unused array objects,
-         * which we reuse.
-         */
-        private List<double[]> arrayPool = new ArrayList<>();
-        private List<MutableDouble> doublePool = new ArrayList<>();
+        /** The default smoothing factor of the EWMA. */
+        public static final double DEFAULT_EWMA_SMOOTHING = 0.2;
+
+        private static final int INITIAL_CAPACITY = 16;
 
-        private ArrayList<MutablePair<MutableDouble, double[]>> data = new ArrayList<>();
-        private int startIdx = 0;
-        private int endIdx = 0;
-        /** If there is not monitoring data. */
-        private boolean empty = true;
+        private double[] times = new double[INITIAL_CAPACITY];
+        /** The observations of each metric, e.g. values[CPU][i]. */
+        private double[][] values = new double[NUM_METRICS][INITIAL_CAPACITY];
+        /** The index of the oldest observation. */
+        private int head = 0;
+        private int count = 0;
 
         /**
          * Keeping the sums of all observations, to avoid excessive looping over
          * the observations.
          */
-        private double[] measurementsSums = new double[] { 0, 0, 0 };
-        /**
-         * The number/count of all observations. We keep it in a variable to
-         * avoid looping.
-         */
-        private int measurementsCount = 0;
-
-        public void put(double time, final double cpuUtil, final double ramUtil, final double diskUtil) {
-            double[] util = getPooledArray(cpuUtil, ramUtil, diskUtil);
-            MutableDouble pooledTime = getPooledDouble(time);
-            if (empty) {
-                data.add(startIdx, new MutablePair<MutableDouble, double[]>(pooledTime, util));
-                endIdx = startIdx;
-
-                // If startIdx is in the beginning of the list and endIdx is in
-                // the end...
-            } else if (data.isEmpty() || (startIdx == 0 && endIdx == data.size() - 1)) {
-                data.add(new MutablePair<MutableDouble, double[]>(pooledTime, util));
-                endIdx = data.size() - 1;
-
-                // If endIdx is not at the end or just before startIdx
-            } else if (endIdx < data.size() - 1 && (startIdx < endIdx || endIdx + 1 < startIdx)) {
-                endIdx++;
-
-                MutablePair<MutableDouble, double[]> entry = data.get(endIdx);
-                entry.setLeft(pooledTime);
-                entry.setRight(util);
-
-                // If endIdx is at the end and startIdx is not in the beginning
-            } else if (startIdx > 0 && endIdx == data.size() - 1) {
-                endIdx = 0;
-
-                MutablePair<MutableDouble, double[]> entry = data.get(endIdx);
-                entry.setLeft(pooledTime);
-                entry.setRight(util);
-
-                // If endIdx is is just before startIdx
-            } else if (endIdx + 1 == startIdx) {
-                endIdx++;
-                startIdx++;
-                data.add(endIdx, new MutablePair<>(pooledTime, util));
-            } else {
-                // Something went wrong...
-                throw new IllegalStateException("Ivalid state of counters: start=" + startIdx + " end=" + endIdx);
-            }
+        private final double[] measurementsSums = new double[NUM_METRICS];
+
+        private double ewmaSmoothing = DEFAULT_EWMA_SMOOTHING;
+        private final double[] ewma = new double[NUM_METRICS];
+        private boolean ewmaInitialised = false;
+
+        /** A buffer for computing percentiles, kept to avoid reallocation. */
+        private double[] percentileBuffer = new double[0];
 
-            for (int i = 0; i < util.length; i++) {
-                measurementsSums[i] += util[i];
+        public void put(final double time, final double cpuUtil, final double ramUtil, final double diskUtil) {
+            if (count == times.length) {
+                grow();
             }
-            this.measurementsCount++;
-            empty = false;
+            int idx = slot(count);
+            times[idx] = time;
+            values[CPU][idx] = cpuUtil;
+            values[RAM][idx] = ramUtil;
+            values[DISK][idx] = diskUtil;
+            count++;
+
+            for (int i = 0; i < NUM_METRICS; i++) {
+                double value = values[i][idx];
+                measurementsSums[i] += value;
+                ewma[i] = ewmaInitialised ? ewmaSmoothing * value + (1 - ewmaSmoothing) * ewma[i] : value;
+            }
+            ewmaInitialised = true;
         }
 
-        public void cleanUp(double currTime, double summaryPeriodLength) {
-            if (empty || summaryPeriodLength < 0) {
+        public void cleanUp(final double currTime, final double summaryPeriodLength) {
+            if (summaryPeriodLength < 0) {
                 return;
             }
 
-            while (data.get(startIdx).getLeft().doubleValue() < currTime - summaryPeriodLength && startIdx != endIdx) {
-                for (int i = 0; i < data.get(startIdx).getRight().length; i++) {
-                    measurementsSums[i] -= data.get(startIdx).getRight()[i];
+            while (count > 0 && times[head] < currTime - summaryPeriodLength) {
+                for (int i = 0; i < NUM_METRICS; i++) {
+                    measurementsSums[i] -= values[i][head];
                 }
-                measurementsCount--;
-
-                // Pool the objects, so we can reuse them.
-                arrayPool.add(data.get(startIdx).getRight());
-                doublePool.add(data.get(startIdx).getLeft());
-
-                startIdx = (startIdx + 1) % data.size();
+                head = slot(1);
+                count--;
             }
 
-            if (startIdx == endIdx && data.get(startIdx).getLeft().doubleValue() < currTime - summaryPeriodLength) {
-                for (int i = 0; i < measurementsSums.length; i++) {
-                    measurementsSums[i] = 0;
-                }
-                measurementsCount = 0;
-
-                // Pool the objects, so we can reuse them.
-                arrayPool.add(data.get(startIdx).getRight());
-                doublePool.add(data.get(startIdx).getLeft());
-
-                empty = true;
-                startIdx = 0;
-                endIdx = 0;
+            if (count == 0) {
+                // Avoid accumulating rounding errors
+                Arrays.fill(measurementsSums, 0);
+                head = 0;
             }
         }
 
         public double[] computerAvgData() {
-            double[] result = new double[] { 0, 0, 0 };
-            if (measurementsCount > 0) {
-                for (int i = 0; i < result.length; i++) {
-                    result[i] = measurementsSums[i] / measurementsCount;
-                }
+            return computerAvgData(new double[NUM_METRICS]);
+        }
+
+        /**
+         * Computes the averages of the metrics over the observations.
+         * 
+         * @param result
+         *            - the array to put the averages in. Must be of size at
+         *            least {@link #NUM_METRICS}.
+         * @return the result parameter, containing the averages. If there are
+         *         no observations, the averages are 0.
+         */
+        public double[] computerAvgData(final double[] result) {
+            for (int i = 0; i < NUM_METRICS; i++) {
+                result[i] = count > 0 ? measurementsSums[i] / count : 0;
             }
             return result;
         }
 
         /**
-         * Return the number of utilisation records.
+         * Computes a percentile of a metric over the observations, using the
+         * nearest rank method.
          * 
-         * @return the number of utilisation records.
+         * @param metric
+         *            - the index of the metric - e.g. {@link #CPU}.
+         * @param percentile
+         *            - the percentile. Must be in the interval [0, 100].
+         * @return the percentile of the metric, or 0 if there are no
+         *         observations.
          */
-        public int size() {
-            if (endIdx == startIdx) {
-                return empty ? 0 : 1;
-            } else if (endIdx > startIdx) {
-                return endIdx - startIdx + 1;
-            } else {
-                return data.size() - (startIdx - endIdx) + 1;
+        public double computePercentile(final int metric, final double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile: " + percentile);
+            }
+            if (count == 0) {
+                return 0;
             }
+            if (percentileBuffer.length < count) {
+                percentileBuffer = new double[times.length];
+            }
+            for (int i = 0; i < count; i++) {
+                percentileBuffer[i] = values[metric][slot(i)];
+            }
+            Arrays.sort(percentileBuffer, 0, count);
+            int rank = (int) Math.ceil(percentile / 100 * count);
+            return percentileBuffer[Math.max(rank, 1) - 1];
         }
 
-        private double[] getPooledArray(final double cpuUtil, final double ramUtil, final double diskUtil) {
-            if (arrayPool.isEmpty()) {
-                return new double[] { cpuUtil, ramUtil, diskUtil };
-            } else {
-                double[] res = arrayPool.remove(arrayPool.size() - 1);
-                res[0] = cpuUtil;
-                res[1] = ramUtil;
-                res[2] = diskUtil;
+        /**
+         * Returns the exponentially weighted moving average of a metric over
+         * all observations, including the ones which have been cleaned up.
+         * 
+         * @param metric
+         *            - the index of the metric - e.g. {@link #CPU}.
+         * @return the EWMA of the metric, or 0 if there have been no
+         *         observations.
+         */
+        public double getEwma(final int metric) {
+            return ewma[metric];
+        }
 
-                if (arrayPool.size() > MAX_POOL_SIZE) {
-                    arrayPool.clear();
-                }
+        /**
+         * Returns the smoothing factor of the EWMA - i.e. the weight of the
+         * newest observation.
+         * 
+         * @return the smoothing factor of the EWMA.
+         */
+        public double getEwmaSmoothing() {
+            return ewmaSmoothing;
+        }
 
-                return res;
+        /**
+         * Sets the smoothing factor of the EWMA - i.e. the weight of the newest
+         * observation.
+         * 
+         * @param ewmaSmoothing
+         *            - the smoothing factor. Must be in the interval (0, 1].
+         */
+        public void setEwmaSmoothing(final double ewmaSmoothing) {
+            if (!(ewmaSmoothing > 0 && ewmaSmoothing <= 1)) {
+                throw new IllegalArgumentException("Invalid EWMA smoothing factor: " + ewmaSmoothing);
             }
+            this.ewmaSmoothing = ewmaSmoothing;
         }
 
-        private MutableDouble getPooledDouble(final double dbl) {
-            if (doublePool.isEmpty()) {
-                return new MutableDouble(dbl);
-            } else {
-                MutableDouble res = doublePool.remove(doublePool.size() - 1);
-                res.setValue(dbl);
-
-                if (doublePool.size() > MAX_POOL_SIZE) {
-                    doublePool.clear();
-                }
-
-                return res;
-            }
+        /**
+         * Return the number of utilisation records.
+         * 
+         * @return the number of utilisation records.
+         */
+        public int size() {
+            return count;
         }
 
         /**
@@ -377,7 +415,32 @@ public class MonitoredVMex extends VMex {
          * @return the size of the used undrlying data structure.
          */
         public int dataSize() {
-            return data.size();
+            return times.length;
+        }
+
+        private int slot(final int idx) {
+            int result = head + idx;
+            return result < times.length ? result : result - times.length;
+        }
+
+        /**
+         * Grows the buffer by half of its size, so that it stays close to the
+         * number of observations in a summary period.
+         */
+        private void grow() {
+            int capacity = times.length + (times.length >> 1);
+            double[] newTimes = new double[capacity];
+            double[][] newValues = new double[NUM_METRICS][capacity];
+            for (int i = 0; i < count; i++) {
+                int idx = slot(i);
+                newTimes[i] = times[idx];
+                for (int m = 0; m < NUM_METRICS; m++) {
+                    newValues[m][i] = values[m][idx];
+                }
+            }
+            times = newTimes;
+            values = newValues;
+            head = 0;
         }
     }
 
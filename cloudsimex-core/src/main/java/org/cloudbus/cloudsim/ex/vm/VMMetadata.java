@@ -2,6 +2,8 @@ package org.cloudbus.cloudsim.ex.vm;
 
 import java.lang.reflect.Field;
 
+import org.apache.commons.lang3.tuple.ImmutablePair;
+
 /**
  * Represents VM metadata - e.g. type, OS etc. All properties can be null.
  * 
@@ -12,6 +14,14 @@ public class VMMetadata implements Cloneable {
 
     private String type;
     private String os;
+    /** The type and the OS as a pair, cached until either of them changes. */
+    private ImmutablePair<String, String> typeAndOS;
+    /**
+     * A value derived from the type and the OS by some owner (e.g. a boot
+     * delay distribution), cached until either of them changes.
+     */
+    private Object resolvedBy;
+    private Object resolvedValue;
 
     // TODO new properties go here...
 
@@ -32,6 +42,7 @@ public class VMMetadata implements Cloneable {
      */
     public void setType(String type) {
         this.type = type;
+        resetCaches();
     }
 
     /**
@@ -51,6 +62,54 @@ public class VMMetadata implements Cloneable {
      */
     public void setOS(String os) {
         this.os = os;
+        resetCaches();
+    }
+
+    /**
+     * Returns the type and the OS as a pair. Consecutive calls return the same
+     * instance, until the type or the OS change.
+     * 
+     * @return the type and the OS as a pair.
+     */
+    public ImmutablePair<String, String> getTypeAndOS() {
+        if (typeAndOS == null) {
+            typeAndOS = ImmutablePair.of(type, os);
+        }
+        return typeAndOS;
+    }
+
+    /**
+     * Returns the value, which the owner has derived from the type and the OS
+     * and cached with {@link VMMetadata#setResolved(Object, Object)}.
+     * 
+     * @param owner
+     *            - the owner of the value. Must not be null.
+     * @return the cached value, or null if the owner has not cached a value,
+     *         or if the type or the OS have changed since then.
+     */
+    public Object getResolved(final Object owner) {
+        return owner == resolvedBy ? resolvedValue : null;
+    }
+
+    /**
+     * Caches a value, which the owner has derived from the type and the OS.
+     * Only one owner's value is kept. The value is discarded when the type or
+     * the OS change.
+     * 
+     * @param owner
+     *            - the owner of the value. Must not be null.
+     * @param value
+     *            - the value to cache.
+     */
+    public void setResolved(final Object owner, final Object value) {
+        this.resolvedBy = owner;
+        this.resolvedValue = value;
+    }
+
+    private void resetCaches() {
+        this.typeAndOS = null;
+        this.resolvedBy = null;
+        this.resolvedValue = null;
     }
 
     /**
@@ -24,6 +24,7 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.ex.util.CustomLog;
 import org.cloudbus.cloudsim.ex.util.Id;
 import org.cloudbus.cloudsim.ex.util.helpers.TestUtil;
+import org.cloudbus.cloudsim.ex.vm.VMStatus;
 import org.cloudbus.cloudsim.ex.vm.VMex;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
@@ -111,6 +112,25 @@ public abstract class BaseDatacenterBrokerTest {
                 new CloudletSchedulerTimeShared());
     }
 
+    /**
+     * Creates a VM, which has run from the start time until the end time,
+     * without running a simulation.
+     */
+    protected VMex createVM(final double startTime, final double endTime) {
+        final double[] clock = new double[] { startTime };
+        VMex vm = new VMex("TestVM", broker.getId(), VM_MIPS, 1, VM_RAM, VM_BW, VM_SIZE, "Xen",
+                new CloudletSchedulerTimeShared()) {
+            @Override
+            protected double getCurrentTime() {
+                return clock[0];
+            }
+        };
+        vm.setStatus(VMStatus.RUNNING);
+        clock[0] = endTime;
+        vm.setStatus(VMStatus.TERMINATED);
+        return vm;
+    }
+
     protected DatacenterEX createDatacenterWithSingleHostAndSingleDisk(final String name) {
         List<Host> hostList = new ArrayList<Host>();
         List<Pe> peList = new ArrayList<>();
@@ -0,0 +1,51 @@
+package org.cloudbus.cloudsim.ex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class CloudletStatisticsTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testCountsAndDelays() {
+        CloudletStatistics stats = new CloudletStatistics(1, 5);
+        assertTrue(Double.isNaN(stats.getMeanDelay()));
+        assertTrue(Double.isNaN(stats.getDelayPercentile(50)));
+
+        stats.record(true, 0.5);
+        stats.record(true, 1.5);
+        stats.record(true, 1.7);
+        stats.record(true, 12);
+        stats.record(false, 100);
+
+        assertEquals(5, stats.getNumberOfCloudlets());
+        assertEquals(4, stats.getNumberOfSuccessful());
+        assertEquals(1, stats.getNumberOfFailed());
+        assertEquals(0.5, stats.getMinDelay(), DELTA);
+        assertEquals(12, stats.getMaxDelay(), DELTA);
+        assertEquals(15.7 / 4, stats.getMeanDelay(), DELTA);
+        assertArrayEquals(new long[] { 1, 2, 0, 0, 1 }, stats.getHistogram());
+
+        assertEquals(1, stats.getDelayPercentile(25), DELTA);
+        assertEquals(2, stats.getDelayPercentile(75), DELTA);
+        assertEquals(12, stats.getDelayPercentile(100), DELTA);
+    }
+
+    @Test
+    public void testWithoutHistogram() {
+        CloudletStatistics stats = new CloudletStatistics();
+        stats.record(true, 3);
+        assertEquals(0, stats.getHistogram().length);
+        assertTrue(Double.isNaN(stats.getDelayPercentile(50)));
+        assertEquals(3, stats.getMeanDelay(), DELTA);
+    }
+}
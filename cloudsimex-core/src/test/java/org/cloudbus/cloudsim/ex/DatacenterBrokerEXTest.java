@@ -1,6 +1,7 @@
 package org.cloudbus.cloudsim.ex;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,6 +53,61 @@ public class DatacenterBrokerEXTest extends BaseDatacenterBrokerTest {
         assertEquals(cloudletDuration, cloudlet2.getFinishTime(), 1);
     }
 
+    @Test
+    public void testBatchSubmission() {
+        int cloudletDuration = 100;
+        broker.setBatchCloudletSubmission(true);
+
+        List<Cloudlet> cloudlets = new ArrayList<>();
+        for (Vm vm : Arrays.asList(vm1, vm1, vm2, vm2)) {
+            Cloudlet cloudlet = createCloudlet(cloudletDuration);
+            cloudlet.setUserId(broker.getId());
+            cloudlet.setVmId(vm.getId());
+            cloudlets.add(cloudlet);
+        }
+        broker.submitCloudletList(cloudlets);
+
+        CloudSim.startSimulation();
+        List<Cloudlet> resultList = broker.getCloudletReceivedList();
+        CloudSim.stopSimulation();
+
+        assertEquals(cloudlets.size(), resultList.size());
+        for (Cloudlet cloudlet : cloudlets) {
+            // Each VM executes two cloudlets simultaneously
+            assertEquals(Cloudlet.SUCCESS, cloudlet.getCloudletStatus());
+            assertEquals(2 * cloudletDuration, cloudlet.getFinishTime(), 1);
+        }
+    }
+
+    @Test
+    public void testSameTimeUpdatesAreCoalesced() {
+        int cloudletDuration = 100;
+
+        Cloudlet cloudlet1 = createCloudlet(cloudletDuration);
+        Cloudlet cloudlet2 = createCloudlet(cloudletDuration);
+        cloudlet1.setUserId(broker.getId());
+        cloudlet2.setUserId(broker.getId());
+
+        cloudlet1.setVmId(vm1.getId());
+        cloudlet2.setVmId(vm2.getId());
+        broker.submitCloudletList(Arrays.asList(cloudlet1, cloudlet2));
+
+        CloudSim.startSimulation();
+        List<Cloudlet> resultList = broker.getCloudletReceivedList();
+        CloudSim.stopSimulation();
+
+        assertEquals(2, resultList.size());
+        assertEquals(Cloudlet.SUCCESS, cloudlet1.getCloudletStatus());
+        assertEquals(Cloudlet.SUCCESS, cloudlet2.getCloudletStatus());
+        assertEquals(cloudletDuration, cloudlet1.getFinishTime(), 1);
+        assertEquals(cloudletDuration, cloudlet2.getFinishTime(), 1);
+
+        // Both cloudlets are submitted at the same time and have the same
+        // estimated finish time
+        assertTrue(datacenter.getCoalescedUpdatesCount() > 0);
+        assertTrue(datacenter.getSuppressedEventsCount() > 0);
+    }
+
     @Test
     public void testTwoVmBothFail() {
         int cloudletDuration = 50;
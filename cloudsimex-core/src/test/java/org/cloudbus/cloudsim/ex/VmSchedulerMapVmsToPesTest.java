@@ -0,0 +1,70 @@
+package org.cloudbus.cloudsim.ex;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Vm;
+import org.cloudbus.cloudsim.VmScheduler;
+import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.ex.util.Id;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author nikolay.grozev
+ *
+ */
+public class VmSchedulerMapVmsToPesTest {
+
+    private Pe pe1;
+    private Pe pe2;
+    private Pe pe3;
+    private VmSchedulerMapVmsToPes<Pe> scheduler;
+    private Vm vm;
+
+    @Before
+    public void setUp() {
+        pe1 = new Pe(Id.pollId(Pe.class), new PeProvisionerSimple(1000));
+        pe2 = new Pe(Id.pollId(Pe.class), new PeProvisionerSimple(1000));
+        pe3 = new Pe(Id.pollId(Pe.class), new PeProvisionerSimple(1000));
+        scheduler = new VmSchedulerMapVmsToPes<Pe>(Arrays.asList(pe1, pe2, pe3)) {
+            @Override
+            protected VmScheduler createSchedulerFroPe(final Pe pe) {
+                return new VmSchedulerTimeSharedOverSubscription(Arrays.asList(pe));
+            }
+        };
+        vm = new Vm(Id.pollId(Vm.class), 1, 250, 1, 512, 1000, 10000, "Xen", new CloudletSchedulerTimeShared());
+    }
+
+    @Test
+    public void testUsedPeIndices() {
+        assertArrayEquals(new int[0], scheduler.getUsedPeIndices(vm));
+
+        // The mapping invalidates the cached indices
+        scheduler.map(vm.getId(), pe3.getId());
+        scheduler.map(vm.getId(), pe1.getId());
+        assertArrayEquals(new int[] { 0, 2 }, scheduler.getUsedPeIndices(vm));
+
+        scheduler.map(vm.getId(), pe2.getId());
+        assertArrayEquals(new int[] { 0, 1, 2 }, scheduler.getUsedPeIndices(vm));
+    }
+
+    @Test
+    public void testAllocationOnlyFromUsedPes() {
+        scheduler.map(vm.getId(), pe1.getId());
+        scheduler.map(vm.getId(), pe3.getId());
+        assertTrue(scheduler.allocatePesForVm(vm, Arrays.asList(250.0, 250.0, 250.0)));
+
+        List<Double> allocated = scheduler.getAllocatedMipsForVm(vm);
+        assertEquals(Arrays.asList(250.0, 0.0, 250.0), allocated);
+        assertArrayEquals(new double[] { 250, 0, 250 }, scheduler.getAllocatedMipsArrayForVm(vm), 0.01);
+    }
+}
@@ -2,14 +2,17 @@ package org.cloudbus.cloudsim.ex.billing;
 
 import static java.math.BigDecimal.valueOf;
 import static org.apache.commons.lang3.tuple.ImmutablePair.of;
+import static org.cloudbus.cloudsim.Consts.DAY;
 import static org.cloudbus.cloudsim.Consts.HOUR;
 import static org.cloudbus.cloudsim.Consts.MINUTE;
 import static org.cloudbus.cloudsim.Consts.NIX_OS;
 import static org.junit.Assert.assertEquals;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -194,6 +197,64 @@ public class EC2OnDemandPolicyTest extends BaseDatacenterBrokerTest {
         assertEquals(expectedBill, bill.doubleValue(), 0.01);
     }
 
+    @Test
+    public void testFastPathMatchesBigDecimalBill() {
+        BigDecimal smallPrice = new BigDecimal("0.065");
+        BigDecimal medPrice = new BigDecimal("0.1234567");
+
+        ImmutableMap<Pair<String, String>, BigDecimal> prices = ImmutableMap
+                .<Pair<String, String>, BigDecimal> builder().put(of("m1.small", NIX_OS), smallPrice)
+                .put(of("m1.medium", NIX_OS), medPrice).build();
+        IVmBillingPolicy policy = new EC2OnDemandPolicy(prices);
+
+        double[] durations = { 0, 1, HOUR - 0.5, HOUR, HOUR + 0.5, HOUR * 3 + 17, DAY * 30 };
+        List<VMex> vms = new ArrayList<>();
+        BigDecimal expectedTotal = BigDecimal.ZERO;
+        for (double duration : durations) {
+            VMex small = createVM(10, 10 + duration);
+            small.getMetadata().setType("m1.small");
+            small.getMetadata().setOS(NIX_OS);
+            VMex med = createVM(20, 20 + duration);
+            med.getMetadata().setType("m1.medium");
+            med.getMetadata().setOS(NIX_OS);
+
+            BigDecimal expected = bigDecimalBill(smallPrice, duration).add(bigDecimalBill(medPrice, duration));
+            assertEquals(0, expected.compareTo(policy.bill(Arrays.asList(small, med))));
+
+            vms.add(small);
+            vms.add(med);
+            expectedTotal = expectedTotal.add(expected);
+        }
+        assertEquals(0, expectedTotal.compareTo(policy.bill(vms)));
+
+        // Bill before the end of the VMs
+        double before = HOUR * 2 + 5;
+        BigDecimal expectedBefore = BigDecimal.ZERO;
+        for (VMex vm : vms) {
+            BigDecimal price = vm.getMetadata().getType().equals("m1.small") ? smallPrice : medPrice;
+            double duration = vm.getEndTime() > before ? before - vm.getStartTime() : vm.getTimeAfterBooting();
+            expectedBefore = expectedBefore.add(bigDecimalBill(price, duration));
+        }
+        assertEquals(0, expectedBefore.compareTo(policy.bill(vms, before)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooPrecisePrice() {
+        new EC2OnDemandPolicy(ImmutableMap.<Pair<String, String>, BigDecimal> of(of("m1.small", NIX_OS),
+                new BigDecimal("0.123456789")));
+    }
+
+    /**
+     * Bills a VM, as the policy did before the micro-cents fast path.
+     */
+    private static BigDecimal bigDecimalBill(final BigDecimal price, final double duration) {
+        int chargeCount = (int) duration / HOUR + 1;
+        if (duration == (int) duration && (int) duration % HOUR == 0) {
+            chargeCount = (int) duration / HOUR;
+        }
+        return price.multiply(BigDecimal.valueOf(chargeCount));
+    }
+
     @Test
     public void testNormalisedCostPerMinute() {
         vm1.getMetadata().setType("m1.small");
@@ -2,14 +2,18 @@ package org.cloudbus.cloudsim.ex.billing;
 
 import static java.math.BigDecimal.valueOf;
 import static org.apache.commons.lang3.tuple.ImmutablePair.of;
+import static org.cloudbus.cloudsim.Consts.DAY;
 import static org.cloudbus.cloudsim.Consts.HOUR;
 import static org.cloudbus.cloudsim.Consts.MINUTE;
 import static org.cloudbus.cloudsim.Consts.NIX_OS;
 import static org.junit.Assert.assertEquals;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Queue;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -233,6 +237,84 @@ public class GoogleOnDemandPolicyTest extends BaseDatacenterBrokerTest {
         assertEquals(d2PricePerHour / 60, policy.normalisedCostPerMinute(vm2).doubleValue(), 0.01);
     }
 
+    @Test
+    public void testFastPathMatchesBigDecimalBill() {
+        // 0.132 is divided exactly by 60, while 0.07 is not
+        BigDecimal d1Price = new BigDecimal("0.132");
+        BigDecimal d2Price = new BigDecimal("0.07");
+
+        ImmutableMap<Pair<String, String>, BigDecimal> prices = ImmutableMap
+                .<Pair<String, String>, BigDecimal> builder().put(of("n1-standard-1-d", NIX_OS), d1Price)
+                .put(of("n1-standard-2-d", NIX_OS), d2Price).build();
+        IVmBillingPolicy policy = new GoogleOnDemandPolicy(prices);
+
+        double[] durations = { 0, 1, MINUTE * 10, MINUTE * 10 + 0.5, MINUTE * 59, HOUR, HOUR * 3 + 17, DAY * 30 };
+        List<VMex> d1Vms = new ArrayList<>();
+        List<VMex> d2Vms = new ArrayList<>();
+        BigDecimal expectedD1Total = BigDecimal.ZERO;
+        long d1Minutes = 0;
+        long d2Minutes = 0;
+        for (double duration : durations) {
+            VMex d1 = createVM(10, 10 + duration);
+            d1.getMetadata().setType("n1-standard-1-d");
+            d1.getMetadata().setOS(NIX_OS);
+            VMex d2 = createVM(20, 20 + duration);
+            d2.getMetadata().setType("n1-standard-2-d");
+            d2.getMetadata().setOS(NIX_OS);
+
+            // The exact price per minute gives the same bill
+            BigDecimal expectedD1 = bigDecimalBill(d1Price, duration);
+            assertEquals(0, expectedD1.compareTo(policy.bill(Arrays.asList(d1))));
+
+            // The inexact one was approximated with a double - now it is
+            // rounded to 12 digits
+            BigDecimal d2Bill = policy.bill(Arrays.asList(d2));
+            assertEquals(0, exactBill(d2Price, chargeCount(duration)).compareTo(d2Bill));
+            assertEquals(bigDecimalBill(d2Price, duration).doubleValue(), d2Bill.doubleValue(), 1e-12);
+
+            d1Vms.add(d1);
+            d2Vms.add(d2);
+            expectedD1Total = expectedD1Total.add(expectedD1);
+            d1Minutes += chargeCount(duration);
+            d2Minutes += chargeCount(duration);
+        }
+        assertEquals(0, expectedD1Total.compareTo(policy.bill(d1Vms)));
+        assertEquals(0, exactBill(d2Price, d2Minutes).compareTo(policy.bill(d2Vms)));
+
+        // All charges are summed before the single rounding
+        List<VMex> allVms = new ArrayList<>(d1Vms);
+        allVms.addAll(d2Vms);
+        BigDecimal expectedAll = d1Price.multiply(BigDecimal.valueOf(d1Minutes))
+                .add(d2Price.multiply(BigDecimal.valueOf(d2Minutes)))
+                .divide(BigDecimal.valueOf(60), 12, RoundingMode.HALF_EVEN);
+        assertEquals(0, expectedAll.compareTo(policy.bill(allVms)));
+    }
+
+    private static long chargeCount(final double duration) {
+        int chargeCount = (int) duration / MINUTE + 1;
+        if (duration == (int) duration && (int) duration % MINUTE == 0) {
+            chargeCount = (int) duration / MINUTE;
+        }
+        return Math.max(10, chargeCount);
+    }
+
+    /**
+     * Bills a VM, as the policy did before the micro-cents fast path.
+     */
+    private static BigDecimal bigDecimalBill(final BigDecimal price, final double duration) {
+        BigDecimal pricePerMin = null;
+        try {
+            pricePerMin = price.divide(BigDecimal.valueOf(60));
+        } catch (ArithmeticException ex) {
+            pricePerMin = BigDecimal.valueOf(price.doubleValue() / 60);
+        }
+        return pricePerMin.multiply(BigDecimal.valueOf(chargeCount(duration)));
+    }
+
+    private static BigDecimal exactBill(final BigDecimal price, final long minutes) {
+        return price.multiply(BigDecimal.valueOf(minutes)).divide(BigDecimal.valueOf(60), 12, RoundingMode.HALF_EVEN);
+    }
+
     @Test
     public void testNexChargeTime() {
         final Queue<Double> vmTimes = new LinkedList<>(Arrays.asList(0d, 30d * MINUTE, 100d * MINUTE));
@@ -5,6 +5,7 @@ import static org.cloudbus.cloudsim.Consts.NIX_OS;
 import static org.cloudbus.cloudsim.Consts.WINDOWS;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Map;
 
 import org.apache.commons.lang3.tuple.Pair;
@@ -86,4 +87,32 @@ public class GaussianByTypeBootDelayTest {
         assertEquals(10.0, stat.getStandardDeviation(), delta);
     }
 
+    @Test
+    public void testIndependentStreams() {
+        VMex small = new VMex("SMALL", 2, 3, 4, 5, 6, 7, "vmm", null);
+        small.getMetadata().setType("m1.small");
+        small.getMetadata().setOS(NIX_OS);
+        VMex micro = new VMex("MICRO", 2, 3, 4, 5, 6, 7, "vmm", null);
+        micro.getMetadata().setType("t1.micro");
+        micro.getMetadata().setOS(NIX_OS);
+
+        GaussianByTypeBootDelay first = new GaussianByTypeBootDelay(DELAY_DEFS, TestUtil.SEED_ARRAY, DEFAULT_DELAY,
+                true);
+        GaussianByTypeBootDelay second = new GaussianByTypeBootDelay(DELAY_DEFS, TestUtil.SEED_ARRAY, DEFAULT_DELAY,
+                true);
+
+        // The delays of a type do not depend on the VMs of the other types
+        double[] firstDelays = first.getDelays(Arrays.asList(small, micro, small));
+        double[] secondDelays = second.getDelays(Arrays.asList(micro, micro, small, small));
+        assertEquals(firstDelays[0], secondDelays[2], 0);
+        assertEquals(firstDelays[2], secondDelays[3], 0);
+        assertEquals(firstDelays[1], secondDelays[0], 0);
+
+        // The cached generator is discarded when the type changes
+        small.getMetadata().setType("hs1.8xlarge");
+        assertEquals(DEFAULT_DELAY, first.getDelay(small), 0);
+        small.getMetadata().setOS(WINDOWS);
+        assertEquals(810.2, first.getDelay(small), 50);
+    }
+
 }
@@ -0,0 +1,38 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Base class for the tests of {@link HddCloudletSchedulerTimeShared}. Each
+ * scenario is run with schedulers without and with finish tag queues.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+@RunWith(Parameterized.class)
+public abstract class BaseHddCloudletSchedulerTimeSharedTest {
+
+    private final boolean usingFinishTagQueues;
+
+    protected BaseHddCloudletSchedulerTimeSharedTest(final boolean usingFinishTagQueues) {
+        this.usingFinishTagQueues = usingFinishTagQueues;
+    }
+
+    @Parameters
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] { { false }, { true } });
+    }
+
+    protected HddCloudletSchedulerTimeShared createScheduler() {
+        HddCloudletSchedulerTimeShared scheduler = new HddCloudletSchedulerTimeShared(usingFinishTagQueues);
+        // Verify the incrementally maintained disk counters as we go
+        scheduler.setCheckConsistency(true);
+        return scheduler;
+    }
+
+}
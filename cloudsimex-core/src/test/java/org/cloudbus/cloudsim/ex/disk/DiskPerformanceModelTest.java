@@ -0,0 +1,61 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class DiskPerformanceModelTest {
+
+    private static final double DELTA = 0.0001;
+
+    @Test
+    public void testFairShare() {
+        IDiskPerformanceModel model = FairShareDiskModel.INSTANCE;
+        assertEquals(100, model.getCloudletIOMips(100, 1), DELTA);
+        assertEquals(25, model.getCloudletIOMips(100, 4), DELTA);
+    }
+
+    @Test
+    public void testTabulated() {
+        TabulatedDiskModel model = new TabulatedDiskModel(0.5, 1, 0.8);
+        assertEquals(50, model.getCloudletIOMips(100, 1), DELTA);
+        assertEquals(50, model.getCloudletIOMips(100, 2), DELTA);
+        assertEquals(80 / 3.0, model.getCloudletIOMips(100, 3), DELTA);
+        // Beyond the table the last factor is used
+        assertEquals(8, model.getCloudletIOMips(100, 10), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTabulatedInvalidFactors() {
+        new TabulatedDiskModel(1, 0);
+    }
+
+    @Test
+    public void testSsdQueueDepth() {
+        SsdQueueDepthDiskModel model = new SsdQueueDepthDiskModel(0.25, 4);
+        assertEquals(0.25, model.getThroughputFactor(1), DELTA);
+        assertEquals(0.5, model.getThroughputFactor(2), DELTA);
+        assertEquals(1, model.getThroughputFactor(4), DELTA);
+        assertEquals(1, model.getThroughputFactor(100), DELTA);
+
+        // The total throughput rises with the queue depth
+        assertTrue(2 * model.getCloudletIOMips(100, 2) > model.getCloudletIOMips(100, 1));
+    }
+
+    @Test
+    public void testHddRandomIO() {
+        HddRandomIODiskModel model = new HddRandomIODiskModel(1);
+        assertEquals(100, model.getCloudletIOMips(100, 1), DELTA);
+        // With two cloudlets the throughput is 100 / 1.5, shared by both
+        assertEquals(100 / 1.5 / 2, model.getCloudletIOMips(100, 2), DELTA);
+        // The total throughput degrades with the queue depth
+        assertTrue(model.getThroughputFactor(10) < model.getThroughputFactor(2));
+        assertTrue(model.getThroughputFactor(1000) > 0.5);
+    }
+}
@@ -0,0 +1,129 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class FinishTagQueueTest {
+
+    private static final double DELTA = 0.0001;
+
+    private FinishTagQueue queue;
+
+    @Before
+    public void setUp() {
+        queue = new FinishTagQueue();
+    }
+
+    @Test
+    public void testFinishTagsAndRemainingWork() {
+        FinishTagQueue.Entry single = queue.add(createResCloudlet(), 100, 1);
+        FinishTagQueue.Entry dual = queue.add(createResCloudlet(), 100, 2);
+
+        assertEquals(100, single.getFinishTag(), DELTA);
+        assertEquals(50, dual.getFinishTag(), DELTA);
+        assertSame(dual, queue.peek());
+
+        queue.advance(20);
+        assertEquals(80, single.getRemainingWork(), DELTA);
+        assertEquals(60, dual.getRemainingWork(), DELTA);
+
+        // Cloudlets added later start from the current virtual time
+        FinishTagQueue.Entry late = queue.add(createResCloudlet(), 10, 1);
+        assertEquals(30, late.getFinishTag(), DELTA);
+        assertSame(late, queue.peek());
+        assertEquals(10, late.getRemainingWork(), DELTA);
+    }
+
+    @Test
+    public void testTotalRemainingWork() {
+        Random random = new Random(2);
+        List<FinishTagQueue.Entry> entries = new ArrayList<>();
+        // No entry is completed, as the virtual time advances with less than 100
+        for (int i = 0; i < 50; i++) {
+            entries.add(queue.add(createResCloudlet(), 400 + random.nextInt(1000), 1 + random.nextInt(4)));
+            queue.advance(random.nextInt(3));
+        }
+        for (int i = 0; i < entries.size(); i += 4) {
+            queue.remove(entries.get(i));
+        }
+
+        double expected = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (i % 4 != 0) {
+                expected += entries.get(i).getRemainingWork();
+            }
+        }
+        assertEquals(expected, queue.getRemainingWork(), DELTA);
+
+        while (!queue.isEmpty()) {
+            queue.poll();
+        }
+        assertEquals(0, queue.getRemainingWork(), DELTA);
+    }
+
+    @Test
+    public void testSync() {
+        FinishTagQueue.Entry entry = queue.add(createResCloudlet(), 100, 2);
+        queue.advance(10);
+        assertEquals(20, entry.sync(), DELTA);
+        assertEquals(0, entry.sync(), DELTA);
+        queue.advance(5);
+        assertEquals(10, entry.sync(), DELTA);
+    }
+
+    @Test
+    public void testPollAndRemove() {
+        Random random = new Random(1);
+        List<FinishTagQueue.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            entries.add(queue.add(createResCloudlet(), random.nextInt(1000), 1 + random.nextInt(4)));
+        }
+
+        // Remove some entries from the middle of the heap
+        for (int i = 0; i < entries.size(); i += 3) {
+            queue.remove(entries.get(i));
+        }
+        // Removing an entry twice has no effect
+        queue.remove(entries.get(0));
+        assertEquals(66, queue.size());
+
+        double previous = Double.NEGATIVE_INFINITY;
+        while (!queue.isEmpty()) {
+            FinishTagQueue.Entry head = queue.poll();
+            assertTrue(head.getFinishTag() >= previous);
+            previous = head.getFinishTag();
+        }
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testOffer() {
+        FinishTagQueue.Entry first = queue.add(createResCloudlet(), 10, 1);
+        FinishTagQueue.Entry second = queue.add(createResCloudlet(), 20, 1);
+
+        assertSame(first, queue.poll());
+        queue.offer(first);
+        assertEquals(2, queue.size());
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+    }
+
+    private static HddResCloudlet createResCloudlet() {
+        return new HddResCloudlet(new HddCloudlet(100, 100, 1, 1, 1, 1, false, null, false));
+    }
+}
@@ -33,7 +33,8 @@ import org.junit.Test;
  * @author nikolay.grozev
  * 
  */
-public class HddCloudletSchedulerTimeShared_MultipleCPUsMultipleDisks_Test {
+public class HddCloudletSchedulerTimeShared_MultipleCPUsMultipleDisks_Test extends
+        BaseHddCloudletSchedulerTimeSharedTest {
 
     private static final double DELTA = 0.01;
 
@@ -67,6 +68,10 @@ public class HddCloudletSchedulerTimeShared_MultipleCPUsMultipleDisks_Test {
     private static HddPe disk1 = new HddPe(new PeProvisionerSimple(HOST_MIOPS), dataItem_1_1, dataItem_1_2);
     private static HddPe disk2 = new HddPe(new PeProvisionerSimple(HOST_MIOPS), dataItem_2_1, dataItem_2_2);
 
+    public HddCloudletSchedulerTimeShared_MultipleCPUsMultipleDisks_Test(final boolean usingFinishTagQueues) {
+        super(usingFinishTagQueues);
+    }
+
     @Before
     public void setUp() throws Exception {
         CustomLog.configLogger(TestUtil.LOG_PROPS);
@@ -90,11 +95,11 @@ public class HddCloudletSchedulerTimeShared_MultipleCPUsMultipleDisks_Test {
         // create 3 VMs. Vm1 has access to both hdds. Vm2 and Vm3 access only
         // disk 1 and 2 respectively
         vm1 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), new Integer[0]);
+                createScheduler(), new Integer[0]);
         vm2 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), new Integer[] { disk1.getId() });
+                createScheduler(), new Integer[] { disk1.getId() });
         vm3 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), new Integer[] { disk2.getId() });
+                createScheduler(), new Integer[] { disk2.getId() });
 
         // add the VMs to the vmList
         vmlist.add(vm1);
@@ -35,7 +35,8 @@ import com.google.common.collect.ImmutableMap;
  * @author nikolay.grozev
  * 
  */
-public class HddCloudletSchedulerTimeShared_SingleCPUMultipleDisks_Test {
+public class HddCloudletSchedulerTimeShared_SingleCPUMultipleDisks_Test extends
+        BaseHddCloudletSchedulerTimeSharedTest {
 
     private static final double DELTA = 0.01;
 
@@ -73,6 +74,10 @@ public class HddCloudletSchedulerTimeShared_SingleCPUMultipleDisks_Test {
     private HddCloudlet cloudlet3;
     private HddCloudlet cloudlet4;
 
+    public HddCloudletSchedulerTimeShared_SingleCPUMultipleDisks_Test(final boolean usingFinishTagQueues) {
+        super(usingFinishTagQueues);
+    }
+
     @Before
     public void setUp() throws Exception {
         CustomLog.configLogger(TestUtil.LOG_PROPS);
@@ -248,9 +253,9 @@ public class HddCloudletSchedulerTimeShared_SingleCPUMultipleDisks_Test {
         String vmm = "Xen"; // VMM name
 
         vm1 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), vmIdsToDiskIds.get("vm1"));
+                createScheduler(), vmIdsToDiskIds.get("vm1"));
         vm2 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), vmIdsToDiskIds.get("vm2"));
+                createScheduler(), vmIdsToDiskIds.get("vm2"));
 
         // add the VMs to the vmList
         vmlist.add(vm1);
@@ -35,7 +35,8 @@ import org.junit.Test;
  * @author nikolay.grozev
  * 
  */
-public class HddCloudletSchedulerTimeShared_SingleCPUSingleDisk_Test {
+public class HddCloudletSchedulerTimeShared_SingleCPUSingleDisk_Test extends
+        BaseHddCloudletSchedulerTimeSharedTest {
 
     private static final int ITEM_SIZE = 5;
     private static final double DELTA = 0.01;
@@ -56,6 +57,10 @@ public class HddCloudletSchedulerTimeShared_SingleCPUSingleDisk_Test {
     private static final int VM_RAM = 512;
     private static final long VM_BW = 1000;
 
+    public HddCloudletSchedulerTimeShared_SingleCPUSingleDisk_Test(final boolean usingFinishTagQueues) {
+        super(usingFinishTagQueues);
+    }
+
     @Before
     public void setUp() throws Exception {
         CustomLog.configLogger(TestUtil.LOG_PROPS);
@@ -78,7 +83,7 @@ public class HddCloudletSchedulerTimeShared_SingleCPUSingleDisk_Test {
 
         // create two VMs
         vm1 = new HddVm("Test", broker.getId(), VM_MIPS, HOST_MIOPS, pesNumber, VM_RAM, VM_BW, VM_SIZE, vmm,
-                new HddCloudletSchedulerTimeShared(), new Integer[0]);
+                createScheduler(), new Integer[0]);
 
         // add the VMs to the vmList
         vmlist.add(vm1);
@@ -0,0 +1,125 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.ex.util.Id;
+import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ *
+ * @author nikolay.grozev
+ *
+ */
+public class HddHostTest {
+
+    private DataItem dataItem1;
+    private DataItem dataItem2;
+    private DataItem dataItem3;
+
+    private HddPe disk1;
+    private HddPe disk2;
+
+    private HddHost host;
+
+    @Before
+    public void setUp() {
+        dataItem1 = new DataItem(5);
+        dataItem2 = new DataItem(5);
+        dataItem3 = new DataItem(5);
+
+        disk1 = new HddPe(new PeProvisionerSimple(100), dataItem1);
+        disk2 = new HddPe(new PeProvisionerSimple(100), dataItem2);
+
+        List<Pe> peList = new ArrayList<>();
+        peList.add(new Pe(Id.pollId(Pe.class), new PeProvisionerSimple(1000)));
+        List<HddPe> hddList = Arrays.asList(disk1, disk2);
+
+        host = new HddHost(new RamProvisionerSimple(2048), new BwProvisionerSimple(10000), 1000000, peList, hddList,
+                new VmSchedulerTimeSharedOverSubscription(peList), new VmDiskScheduler(hddList));
+    }
+
+    @Test
+    public void testHddIndex() {
+        assertEquals(0, host.getHddIndex(dataItem1.getId()));
+        assertEquals(1, host.getHddIndex(dataItem2.getId()));
+        assertEquals(-1, host.getHddIndex(dataItem3.getId()));
+    }
+
+    @Test
+    public void testHddIndexUpdates() {
+        disk2.addDataItem(dataItem3);
+        assertEquals(1, host.getHddIndex(dataItem3.getId()));
+
+        // A replica on a disk with a lower index takes precedence
+        disk1.addDataItem(dataItem3);
+        assertEquals(0, host.getHddIndex(dataItem3.getId()));
+
+        // Removing the first replica falls back to the second one
+        disk1.removeDataItem(dataItem3.getId());
+        assertEquals(1, host.getHddIndex(dataItem3.getId()));
+
+        disk2.removeDataItem(dataItem3.getId());
+        assertEquals(-1, host.getHddIndex(dataItem3.getId()));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testDataCanNotBeRemovedThroughView() {
+        disk1.getData().remove(dataItem1);
+    }
+
+    @Test
+    public void testHddIndicesOfReplicas() {
+        assertArrayEquals(new int[] { 0 }, host.getHddIndices(dataItem1.getId()));
+        assertArrayEquals(new int[0], host.getHddIndices(dataItem3.getId()));
+
+        disk2.addDataItem(dataItem1);
+        assertArrayEquals(new int[] { 0, 1 }, host.getHddIndices(dataItem1.getId()));
+
+        disk1.removeDataItem(dataItem1.getId());
+        assertArrayEquals(new int[] { 1 }, host.getHddIndices(dataItem1.getId()));
+        assertEquals(1, host.getHddIndex(dataItem1.getId()));
+    }
+
+    @Test
+    public void testOnlyActiveVmsAreUpdated() {
+        HddVm vm1 = createVm();
+        HddVm vm2 = createVm();
+        assertTrue(host.vmCreate(vm1));
+        assertTrue(host.vmCreate(vm2));
+        assertEquals(0, host.getNumberOfActiveVms());
+
+        vm1.getCloudletScheduler().cloudletSubmit(new HddCloudlet(1000, 100, 1, 0, false, dataItem1));
+        assertEquals(1, host.getNumberOfActiveVms());
+
+        host.updateVmsProcessing(1);
+        assertEquals(1, vm1.getCloudletScheduler().getPreviousTime(), 0.01);
+        // The idle VM is not updated ...
+        assertEquals(0, vm2.getCloudletScheduler().getPreviousTime(), 0.01);
+
+        // ... until it gets a cloudlet
+        vm2.getCloudletScheduler().cloudletSubmit(new HddCloudlet(1000, 100, 1, 0, false, dataItem2));
+        assertEquals(2, host.getNumberOfActiveVms());
+        assertEquals(1, vm2.getCloudletScheduler().getPreviousTime(), 0.01);
+
+        // Once all cloudlets are done, the VMs are idle again
+        host.updateVmsProcessing(1000);
+        assertEquals(0, host.getNumberOfActiveVms());
+    }
+
+    private static HddVm createVm() {
+        return new HddVm("TestVM", 1, 250, 100, 1, 512, 1000, 10000, "Xen", new HddCloudletSchedulerTimeShared(),
+                new Integer[0]);
+    }
+}
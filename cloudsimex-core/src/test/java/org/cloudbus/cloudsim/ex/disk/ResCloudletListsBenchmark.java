@@ -0,0 +1,190 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.cloudbus.cloudsim.lists.ResCloudletList;
+
+/**
+ * Compares the list operations of {@link HddCloudletSchedulerTimeShared} with
+ * {@link ResCloudletSlotList} and {@link ResCloudletRing}, to the same
+ * operations with {@link LinkedList}s, as used before. Not a unit test - run
+ * the main method.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class ResCloudletListsBenchmark {
+
+    private static final int[] SIZES = { 100, 1000, 10000 };
+    private static final int OPERATIONS = 20000;
+    private static final int REPETITIONS = 5;
+
+    /**
+     * The operations of the scheduler, which depend on the lists.
+     */
+    private abstract static class Lists {
+        abstract void addExec(HddResCloudlet rcl);
+
+        abstract HddResCloudlet removeExec(int cloudletId);
+
+        abstract void addPaused(HddResCloudlet rcl);
+
+        abstract HddResCloudlet removePaused(int cloudletId);
+
+        abstract void addFinished(HddResCloudlet rcl);
+
+        abstract HddResCloudlet pollFinished();
+
+        abstract List<HddResCloudlet> exec();
+    }
+
+    private static class LinkedLists extends Lists {
+        private final List<HddResCloudlet> exec = new LinkedList<>();
+        private final List<HddResCloudlet> paused = new LinkedList<>();
+        private final List<HddResCloudlet> finished = new LinkedList<>();
+
+        @Override
+        void addExec(final HddResCloudlet rcl) {
+            exec.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet removeExec(final int cloudletId) {
+            int position = ResCloudletList.getPositionById(exec, cloudletId);
+            return position >= 0 ? exec.remove(position) : null;
+        }
+
+        @Override
+        void addPaused(final HddResCloudlet rcl) {
+            paused.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet removePaused(final int cloudletId) {
+            int position = ResCloudletList.getPositionById(paused, cloudletId);
+            return position >= 0 ? paused.remove(position) : null;
+        }
+
+        @Override
+        void addFinished(final HddResCloudlet rcl) {
+            finished.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet pollFinished() {
+            return finished.isEmpty() ? null : finished.remove(0);
+        }
+
+        @Override
+        List<HddResCloudlet> exec() {
+            return exec;
+        }
+    }
+
+    private static class ArrayLists extends Lists {
+        private final ResCloudletSlotList<HddResCloudlet> exec = new ResCloudletSlotList<>();
+        private final ResCloudletSlotList<HddResCloudlet> paused = new ResCloudletSlotList<>();
+        private final ResCloudletRing<HddResCloudlet> finished = new ResCloudletRing<>();
+
+        @Override
+        void addExec(final HddResCloudlet rcl) {
+            exec.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet removeExec(final int cloudletId) {
+            return exec.removeById(cloudletId);
+        }
+
+        @Override
+        void addPaused(final HddResCloudlet rcl) {
+            paused.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet removePaused(final int cloudletId) {
+            return paused.removeById(cloudletId);
+        }
+
+        @Override
+        void addFinished(final HddResCloudlet rcl) {
+            finished.add(rcl);
+        }
+
+        @Override
+        HddResCloudlet pollFinished() {
+            return finished.poll();
+        }
+
+        @Override
+        List<HddResCloudlet> exec() {
+            return exec;
+        }
+    }
+
+    /**
+     * Runs a mix of pauses, resumes, completions and iterations over the exec
+     * list. Initially all but the last {@link #OPERATIONS} cloudlets are
+     * executing, and the rest arrive as others complete.
+     * 
+     * @return the elapsed time in nanoseconds.
+     */
+    private static long run(final Lists lists, final HddResCloudlet[] cloudlets, final long seed) {
+        Random random = new Random(seed);
+        List<HddResCloudlet> paused = new ArrayList<>();
+        int next = 0;
+        for (; next < cloudlets.length - OPERATIONS; next++) {
+            lists.addExec(cloudlets[next]);
+        }
+
+        long start = System.nanoTime();
+        double checksum = 0;
+        for (int i = 0; i < OPERATIONS; i++) {
+            int op = random.nextInt(4);
+            List<HddResCloudlet> exec = lists.exec();
+            if (op == 0 && !exec.isEmpty()) {
+                HddResCloudlet rcl = lists.removeExec(exec.get(random.nextInt(exec.size())).getCloudletId());
+                lists.addPaused(rcl);
+                paused.add(rcl);
+            } else if (op == 1 && !paused.isEmpty()) {
+                HddResCloudlet rcl = paused.remove(random.nextInt(paused.size()));
+                lists.addExec(lists.removePaused(rcl.getCloudletId()));
+            } else if (op == 2 && !exec.isEmpty()) {
+                // A cloudlet completes and a new one arrives
+                lists.addFinished(lists.removeExec(exec.get(random.nextInt(exec.size())).getCloudletId()));
+                lists.pollFinished();
+                lists.addExec(cloudlets[next++]);
+            } else {
+                for (HddResCloudlet rcl : exec) {
+                    checksum += rcl.getHddIndex();
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        if (checksum > 0) {
+            throw new IllegalStateException();
+        }
+        return elapsed;
+    }
+
+    public static void main(final String[] args) {
+        for (int size : SIZES) {
+            HddResCloudlet[] cloudlets = new HddResCloudlet[size + OPERATIONS];
+            for (int i = 0; i < cloudlets.length; i++) {
+                cloudlets[i] = new HddResCloudlet(new HddCloudlet(100, 100, 1, 1, 1, 1, false, null, false));
+            }
+
+            long linked = Long.MAX_VALUE;
+            long arrays = Long.MAX_VALUE;
+            for (int rep = 0; rep < REPETITIONS; rep++) {
+                linked = Math.min(linked, run(new LinkedLists(), cloudlets, rep));
+                arrays = Math.min(arrays, run(new ArrayLists(), cloudlets, rep));
+            }
+            System.out.printf("%d cloudlets: LinkedList %.2f ms, array backed %.2f ms%n", size, linked / 1e6,
+                    arrays / 1e6);
+        }
+    }
+}
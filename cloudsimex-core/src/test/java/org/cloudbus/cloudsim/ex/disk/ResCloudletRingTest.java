@@ -0,0 +1,70 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class ResCloudletRingTest {
+
+    private ResCloudletRing<HddResCloudlet> ring;
+
+    @Before
+    public void setUp() {
+        ring = new ResCloudletRing<>();
+    }
+
+    @Test
+    public void testFifoOrder() {
+        Deque<HddResCloudlet> reference = new ArrayDeque<>();
+        // Wrap around the array and grow it several times
+        for (int i = 0; i < 200; i++) {
+            HddResCloudlet rcl = createResCloudlet();
+            ring.add(rcl);
+            reference.add(rcl);
+            if (i % 3 == 0) {
+                assertSame(reference.poll(), ring.poll());
+            }
+        }
+
+        assertEquals(reference.size(), ring.size());
+        assertEquals(new ArrayList<>(reference), ring);
+        while (!reference.isEmpty()) {
+            assertSame(reference.poll(), ring.poll());
+        }
+        assertNull(ring.poll());
+    }
+
+    @Test
+    public void testRemoveFromTheMiddle() {
+        List<HddResCloudlet> reference = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            HddResCloudlet rcl = createResCloudlet();
+            ring.add(rcl);
+            reference.add(rcl);
+        }
+        ring.poll();
+        reference.remove(0);
+
+        HddResCloudlet removed = reference.remove(7);
+        assertSame(removed, ring.removeById(removed.getCloudletId()));
+        assertNull(ring.removeById(removed.getCloudletId()));
+        assertEquals(reference, ring);
+    }
+
+    private static HddResCloudlet createResCloudlet() {
+        return new HddResCloudlet(new HddCloudlet(100, 100, 1, 1, 1, 1, false, null, false));
+    }
+}
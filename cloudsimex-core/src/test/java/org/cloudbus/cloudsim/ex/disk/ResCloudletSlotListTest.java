@@ -0,0 +1,116 @@
+package org.cloudbus.cloudsim.ex.disk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class ResCloudletSlotListTest {
+
+    private ResCloudletSlotList<HddResCloudlet> list;
+
+    @Before
+    public void setUp() {
+        list = new ResCloudletSlotList<>();
+    }
+
+    @Test
+    public void testSwapRemove() {
+        HddResCloudlet rcl1 = createResCloudlet();
+        HddResCloudlet rcl2 = createResCloudlet();
+        HddResCloudlet rcl3 = createResCloudlet();
+        list.add(rcl1);
+        list.add(rcl2);
+        list.add(rcl3);
+
+        // The last cloudlet takes the slot of the removed one
+        assertSame(rcl1, list.removeById(rcl1.getCloudletId()));
+        assertEquals(2, list.size());
+        assertSame(rcl3, list.get(0));
+        assertSame(rcl2, list.get(1));
+        assertEquals(0, list.indexOfId(rcl3.getCloudletId()));
+        assertEquals(-1, list.indexOfId(rcl1.getCloudletId()));
+
+        assertNull(list.removeById(rcl1.getCloudletId()));
+        assertFalse(list.remove(rcl1));
+        assertTrue(list.remove(rcl3));
+        assertSame(rcl2, list.getById(rcl2.getCloudletId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateIds() {
+        HddResCloudlet rcl = createResCloudlet();
+        list.add(rcl);
+        list.add(rcl);
+    }
+
+    @Test
+    public void testRemoveWhileIterating() {
+        List<HddResCloudlet> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            HddResCloudlet rcl = createResCloudlet();
+            list.add(rcl);
+            if (i % 2 == 0) {
+                expected.add(rcl);
+            }
+        }
+
+        int visited = 0;
+        for (Iterator<HddResCloudlet> iter = list.iterator(); iter.hasNext();) {
+            HddResCloudlet rcl = iter.next();
+            visited++;
+            if (!expected.contains(rcl)) {
+                iter.remove();
+            }
+        }
+        assertEquals(10, visited);
+        assertEquals(new HashSet<>(expected), new HashSet<>(list));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(1);
+        Map<Integer, HddResCloudlet> reference = new LinkedHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            if (reference.isEmpty() || random.nextInt(3) > 0) {
+                HddResCloudlet rcl = createResCloudlet();
+                list.add(rcl);
+                reference.put(rcl.getCloudletId(), rcl);
+            } else {
+                HddResCloudlet rcl = list.get(random.nextInt(list.size()));
+                assertSame(rcl, list.removeById(rcl.getCloudletId()));
+                reference.remove(rcl.getCloudletId());
+            }
+        }
+
+        assertEquals(reference.size(), list.size());
+        for (HddResCloudlet rcl : reference.values()) {
+            assertSame(rcl, list.get(list.indexOfId(rcl.getCloudletId())));
+        }
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        assertEquals(-1, list.indexOfId(reference.keySet().iterator().next()));
+    }
+
+    private static HddResCloudlet createResCloudlet() {
+        return new HddResCloudlet(new HddCloudlet(100, 100, 1, 1, 1, 1, false, null, false));
+    }
+}
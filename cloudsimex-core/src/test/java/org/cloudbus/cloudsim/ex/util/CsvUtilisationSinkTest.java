@@ -0,0 +1,80 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class CsvUtilisationSinkTest {
+
+    @Test
+    public void testAllRowsAreWritten() throws IOException {
+        File file = File.createTempFile("util-sink", ".csv");
+        file.deleteOnExit();
+
+        // Small batches and queue, so that the recording waits for the writer
+        CsvUtilisationSink sink = new CsvUtilisationSink(file, 5, 3, 1);
+        for (int t = 0; t < 100; t++) {
+            for (int vmId = 0; vmId < 2; vmId++) {
+                sink.record(t, vmId, 0.5, 0.25, vmId);
+            }
+            sink.recordCompleted(t);
+        }
+        sink.close();
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.US_ASCII);
+        assertEquals(201, lines.size());
+        assertEquals(CsvUtilisationSink.HEADER, lines.get(0));
+        assertEquals("0.0,0,0.5,0.25,0.0", lines.get(1));
+        assertEquals("99.0,1,0.5,0.25,1.0", lines.get(200));
+    }
+
+    @Test(timeout = 10000)
+    public void testCloseAfterWriterInterrupted() throws Exception {
+        File file = File.createTempFile("util-sink", ".csv");
+        file.deleteOnExit();
+
+        CsvUtilisationSink sink = new CsvUtilisationSink(file, -1, 1, 1);
+        sink.getWriter().interrupt();
+        sink.getWriter().join();
+
+        try {
+            sink.record(0, 0, 0, 0, 0);
+            fail("The failure of the writer is not reported");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+
+        // Closing does not wait for the stopped writer
+        try {
+            sink.close();
+            fail("The failure of the writer is not reported");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+        }
+        sink.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRecordAfterClose() throws IOException {
+        File file = File.createTempFile("util-sink", ".csv");
+        file.deleteOnExit();
+
+        CsvUtilisationSink sink = new CsvUtilisationSink(file, -1);
+        sink.close();
+        sink.record(0, 0, 0, 0, 0);
+    }
+}
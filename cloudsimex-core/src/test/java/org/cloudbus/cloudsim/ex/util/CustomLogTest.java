@@ -0,0 +1,41 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.logging.Level;
+
+import org.junit.Test;
+
+import com.google.common.base.Supplier;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class CustomLogTest {
+
+    @Test
+    public void testSupplierIsCalledOnlyForEnabledLevels() {
+        assumeTrue(!CustomLog.isLevelHighEnough(Level.FINEST) && CustomLog.isLevelHighEnough(Level.SEVERE));
+
+        CountingSupplier finest = new CountingSupplier();
+        CustomLog.print(Level.FINEST, finest);
+        assertEquals(0, finest.calls);
+
+        CountingSupplier severe = new CountingSupplier();
+        CustomLog.print(Level.SEVERE, severe);
+        assertEquals(1, severe.calls);
+    }
+
+    private static class CountingSupplier implements Supplier<String> {
+        private int calls = 0;
+
+        @Override
+        public String get() {
+            calls++;
+            return "Message " + calls;
+        }
+    }
+}
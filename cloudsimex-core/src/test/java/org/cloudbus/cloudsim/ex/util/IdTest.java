@@ -38,6 +38,23 @@ public class IdTest {
         assertEquals(6, ids.size());
     }
 
+    @Test
+    public void testSeparateIdSpaces() {
+        IdSpace space1 = new IdSpace();
+        IdSpace space2 = new IdSpace();
+
+        assertEquals(1, space1.pollId(Cloudlet.class));
+        assertEquals(2, space1.pollId(CloudLetB.class));
+        assertEquals(1, space1.pollId(X.class));
+
+        // The counters of the second space are independent
+        assertEquals(1, space2.pollId(CloudLetA.class));
+        assertEquals(1, space2.pollId(Y.class));
+        assertEquals(2, space2.pollId(String.class));
+
+        assertEquals(3, space1.pollId(Cloudlet.class));
+    }
+
     private static class CloudLetA extends Cloudlet {
         public CloudLetA(int cloudletId, long cloudletLength, int pesNumber, long cloudletFileSize,
                 long cloudletOutputSize, UtilizationModel utilizationModelCpu, UtilizationModel utilizationModelRam,
@@ -0,0 +1,138 @@
+package org.cloudbus.cloudsim.ex.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class UtilisationHistoryTest {
+
+    private static final double DELTA = 0.00001;
+
+    @Test
+    public void testRangeQueries() {
+        UtilisationHistory history = new UtilisationHistory(4);
+        fill(history, 20);
+
+        assertEquals(20, history.getNumberOfTicks());
+        assertEquals(40, history.size());
+
+        double[][] vm1 = history.getVmUtilisation(1, 5, 7);
+        assertArrayEquals(new double[] { 5, 6, 7 }, vm1[0], DELTA);
+        assertArrayEquals(new double[] { 0.05, 0.06, 0.07 }, vm1[1 + UtilisationHistory.CPU], DELTA);
+        assertArrayEquals(new double[] { 0.5, 0.6, 0.7 }, vm1[1 + UtilisationHistory.RAM], DELTA);
+        assertArrayEquals(new double[] { 5, 6, 7 }, vm1[1 + UtilisationHistory.DISK], DELTA);
+
+        double[][] vm2 = history.getVmUtilisation(2, 18.5, 100);
+        assertArrayEquals(new double[] { 19 }, vm2[0], DELTA);
+        assertArrayEquals(new double[] { 0.19 * 2 }, vm2[1], DELTA);
+
+        assertEquals(0, history.getVmUtilisation(3, 0, 100)[0].length);
+        assertEquals(0, history.getVmUtilisation(1, 7.5, 7.9)[0].length);
+    }
+
+    @Test
+    public void testMapView() {
+        UtilisationHistory history = new UtilisationHistory(3);
+        fill(history, 5);
+        history.startTick(5);
+
+        Map<Double, Map<Integer, double[]>> map = new LinkedHashMap<>();
+        assertEquals(6, history.appendTo(map, 0));
+        assertEquals(6, map.size());
+        assertEquals(0, map.get(5.0).size());
+        assertArrayEquals(new double[] { 0.04 * 2, 0.4 * 2, 4 * 2 }, map.get(4.0).get(2), DELTA);
+
+        // A tick with the same time replaces the previous one
+        history.startTick(5);
+        history.add(1, 1, 1, 1);
+        assertEquals(7, history.appendTo(map, 6));
+        assertEquals(6, map.size());
+        assertArrayEquals(new double[] { 1, 1, 1 }, map.get(5.0).get(1), DELTA);
+    }
+
+    @Test
+    public void testSpillToFile() throws IOException {
+        File file = File.createTempFile("util-history", ".bin");
+        file.deleteOnExit();
+        try (UtilisationHistory spilled = new UtilisationHistory(4, file)) {
+            UtilisationHistory inMemory = new UtilisationHistory(4);
+            fill(spilled, 50);
+            fill(inMemory, 50);
+
+            assertEquals(inMemory.size(), spilled.size());
+            for (int row = 0; row < inMemory.size(); row++) {
+                assertEquals(inMemory.getTime(row), spilled.getTime(row), DELTA);
+                assertEquals(inMemory.getVmId(row), spilled.getVmId(row));
+                for (int m = 0; m < 3; m++) {
+                    assertEquals(inMemory.getUtil(row, m), spilled.getUtil(row, m), DELTA);
+                }
+            }
+            assertArrayEquals(inMemory.getVmUtilisation(2, 10, 30)[3], spilled.getVmUtilisation(2, 10, 30)[3], DELTA);
+        }
+    }
+
+    @Test
+    public void testCloseDeletesSpillFile() throws IOException {
+        File file = File.createTempFile("util-history", ".bin");
+        file.deleteOnExit();
+        UtilisationHistory spilled = new UtilisationHistory(4, file);
+        fill(spilled, 10);
+        spilled.close();
+
+        assertFalse(file.exists());
+        // The spilled records remain readable
+        assertEquals(20, spilled.size());
+        assertEquals(0, spilled.getTime(0), DELTA);
+        spilled.close();
+    }
+
+    @Test
+    public void testSpillToMultipleRegions() throws IOException {
+        File file = File.createTempFile("util-history", ".bin");
+        file.deleteOnExit();
+        try (UtilisationHistory spilled = new UtilisationHistory(4, file, 3)) {
+            UtilisationHistory inMemory = new UtilisationHistory(4);
+            fill(spilled, 50);
+            fill(inMemory, 50);
+
+            // 100 records - 24 full chunks are spilled in 8 regions of 3 chunks
+            assertEquals(8, spilled.getNumberOfMappedRegions());
+            for (int row = 0; row < inMemory.size(); row++) {
+                assertEquals(inMemory.getTime(row), spilled.getTime(row), DELTA);
+                assertEquals(inMemory.getVmId(row), spilled.getVmId(row));
+                for (int m = 0; m < 3; m++) {
+                    assertEquals(inMemory.getUtil(row, m), spilled.getUtil(row, m), DELTA);
+                }
+            }
+            assertArrayEquals(inMemory.getVmUtilisation(1, 0, 49)[2], spilled.getVmUtilisation(1, 0, 49)[2], DELTA);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTicksMustBeOrdered() {
+        UtilisationHistory history = new UtilisationHistory();
+        history.startTick(2);
+        history.startTick(1);
+    }
+
+    private static void fill(final UtilisationHistory history, final int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            history.startTick(t);
+            for (int vmId = 1; vmId <= 2; vmId++) {
+                history.add(vmId, t / 100.0 * vmId, t / 10.0 * vmId, t * vmId);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package org.cloudbus.cloudsim.ex.vm;
+
+import static org.junit.Assert.assertEquals;
+
+import org.cloudbus.cloudsim.ex.vm.MonitoredVMex.MonitoredData;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class MonitoredDataTest {
+
+    private static final double DELTA = 0.0001;
+
+    private MonitoredData data;
+
+    @Before
+    public void setUp() {
+        data = new MonitoredData();
+    }
+
+    @Test
+    public void testAveragesOverTheSummaryPeriod() {
+        for (int t = 0; t < 100; t++) {
+            data.put(t, t / 100.0, 0.5, 0);
+            data.cleanUp(t, 9);
+        }
+
+        // Only the observations for [90, 99] are kept
+        assertEquals(10, data.size());
+        double[] avg = data.computerAvgData();
+        assertEquals(0.945, avg[MonitoredData.CPU], DELTA);
+        assertEquals(0.5, avg[MonitoredData.RAM], DELTA);
+        assertEquals(0, avg[MonitoredData.DISK], DELTA);
+
+        // The buffer does not grow beyond the observations of a period
+        assertEquals(16, data.dataSize());
+
+        data.cleanUp(200, 9);
+        assertEquals(0, data.size());
+        assertEquals(0, data.computerAvgData()[MonitoredData.CPU], DELTA);
+    }
+
+    @Test
+    public void testGrowthWhileWrapped() {
+        for (int t = 0; t < 10; t++) {
+            data.put(t, 0, 0, 0);
+        }
+        data.cleanUp(10, 4);
+        for (int t = 10; t < 40; t++) {
+            data.put(t, t, 0, 0);
+        }
+
+        // The observations for [6, 39]
+        assertEquals(34, data.size());
+        double expected = (10 + 39) / 2.0 * 30 / 34;
+        assertEquals(expected, data.computerAvgData()[MonitoredData.CPU], DELTA);
+    }
+
+    @Test
+    public void testPercentiles() {
+        for (int t = 1; t <= 20; t++) {
+            data.put(t, t / 20.0, 0, 0);
+        }
+        assertEquals(0.5, data.computePercentile(MonitoredData.CPU, 50), DELTA);
+        assertEquals(0.95, data.computePercentile(MonitoredData.CPU, 95), DELTA);
+        assertEquals(1, data.computePercentile(MonitoredData.CPU, 100), DELTA);
+        assertEquals(0.05, data.computePercentile(MonitoredData.CPU, 0), DELTA);
+        assertEquals(0, data.computePercentile(MonitoredData.DISK, 99), DELTA);
+    }
+
+    @Test
+    public void testEwma() {
+        data.setEwmaSmoothing(0.5);
+        data.put(0, 1, 0, 0);
+        assertEquals(1, data.getEwma(MonitoredData.CPU), DELTA);
+        data.put(1, 0, 0, 0);
+        assertEquals(0.5, data.getEwma(MonitoredData.CPU), DELTA);
+        data.put(2, 0, 1, 0);
+        assertEquals(0.25, data.getEwma(MonitoredData.CPU), DELTA);
+        assertEquals(0.5, data.getEwma(MonitoredData.RAM), DELTA);
+    }
+}
@@ -2,11 +2,14 @@ package org.cloudbus.cloudsim.ex.web;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.cloudbus.cloudsim.ex.disk.HddVm;
 import org.cloudbus.cloudsim.ex.util.Id;
 import org.cloudbus.cloudsim.ex.vm.VMStatus;
 
+import com.google.common.base.Supplier;
+
 /**
  * Common functionality of load balancers.
  * 
@@ -86,4 +89,109 @@ public abstract class BaseWebLoadBalancer implements ILoadBalancer {
     public IDBBalancer getDbBalancer() {
         return dbBalancer;
     }
+
+    /**
+     * Describes the state of an application server VM, for debug purposes.
+     * 
+     * @param vm
+     *            - the VM.
+     * @param usedASServers
+     *            - the ids of the used application servers mapped to their
+     *            number of sessions.
+     * @param markFree
+     *            - whether to mark the VM as free, if it has no sessions.
+     * @return a description of the state of the VM.
+     */
+    protected static String describeAppServer(final HddVm vm, final Map<Integer, Integer> usedASServers,
+            final boolean markFree) {
+        Integer sessions = usedASServers.get(vm.getId());
+        return String.format("%s[%s] cpu(%.2f), ram(%.2f), cdlts(%d), sess(%d);", vm,
+                (markFree && sessions == null ? "FREE, " : "") + vm.getStatus(), vm.getCPUUtil(), vm.getRAMUtil(),
+                vm.getCloudletScheduler().getCloudletExecList().size(), sessions == null ? 0 : sessions);
+    }
+
+    /**
+     * Returns a lazy description of the states of application server VMs, for
+     * debug purposes. The description is built only if it is logged (i.e. its
+     * toString or get method is called), and at most once.
+     * 
+     * @param vms
+     *            - the VMs.
+     * @param usedASServers
+     *            - the ids of the used application servers mapped to their
+     *            number of sessions.
+     * @param markFree
+     *            - whether to mark the VMs without sessions as free.
+     * @return a supplier of the description.
+     */
+    protected static Supplier<String> describeAppServers(final List<HddVm> vms,
+            final Map<Integer, Integer> usedASServers, final boolean markFree) {
+        return new LazyDescription() {
+            @Override
+            protected String describe() {
+                StringBuilder result = new StringBuilder();
+                for (HddVm vm : vms) {
+                    result.append(describeAppServer(vm, usedASServers, markFree)).append(' ');
+                }
+                return result.toString();
+            }
+        };
+    }
+
+    /**
+     * Returns a lazy description of the states of DB server VMs, for debug
+     * purposes. The description is built only if it is logged (i.e. its
+     * toString or get method is called), and at most once.
+     * 
+     * @param dbVms
+     *            - the DB server VMs.
+     * @return a supplier of the description.
+     */
+    protected static Supplier<String> describeDbServers(final List<HddVm> dbVms) {
+        return new LazyDescription() {
+            @Override
+            protected String describe() {
+                StringBuilder result = new StringBuilder();
+                for (HddVm dbVm : dbVms) {
+                    result.append(String.format("%s cpu(%.2f), ram(%.2f), disk(%.2f), cdlts(%d);", dbVm,
+                            dbVm.getCPUUtil(), dbVm.getRAMUtil(), dbVm.getDiskUtil(), dbVm.getCloudletScheduler()
+                                    .getCloudletExecList().size()));
+                }
+                return result.toString();
+            }
+        };
+    }
+
+    /**
+     * A description for debug purposes, which is built upon the first call to
+     * {@link #get()} or {@link #toString()}. Thus it can be passed directly as
+     * an argument to the logging methods, which format their messages only if
+     * the log level is enabled.
+     * 
+     * @author nikolay.grozev
+     * 
+     */
+    private abstract static class LazyDescription implements Supplier<String> {
+        private String description;
+
+        /**
+         * Builds the description.
+         * 
+         * @return the description.
+         */
+        protected abstract String describe();
+
+        @Override
+        public String get() {
+            if (description == null) {
+                description = describe();
+            }
+            return description;
+        }
+
+        @Override
+        public String toString() {
+            return get();
+        }
+    }
 }
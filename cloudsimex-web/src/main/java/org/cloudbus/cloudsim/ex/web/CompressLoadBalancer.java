@@ -18,6 +18,8 @@ import org.cloudbus.cloudsim.ex.util.CustomLog;
 import org.cloudbus.cloudsim.ex.vm.MonitoredVMex;
 import org.cloudbus.cloudsim.ex.web.workload.brokers.WebBroker;
 
+import com.google.common.base.Supplier;
+
 /**
  * 
  * A load balancer, which compresses the load into the smallest number of VMs
@@ -33,8 +35,6 @@ public class CompressLoadBalancer extends BaseWebLoadBalancer implements ILoadBa
     private final double cpuThreshold;
     private final double ramThreshold;
 
-    private StringBuilder debugSB = new StringBuilder();
-
     private LinkedHashMap<Integer, Integer> secsToArrivals = new LinkedHashMap<>();
 
     /**
@@ -88,20 +88,14 @@ public class CompressLoadBalancer extends BaseWebLoadBalancer implements ILoadBa
                 }
             }
         } else {// Assign to one of the running VMs
-            for (WebSession session : noAppServSessions) {
+            for (final WebSession session : noAppServSessions) {
                 List<HddVm> vms = new ArrayList<>(runingVMs);
-                Map<Integer, Integer> usedASServers = this.broker.getASServersToNumSessions();
+                final Map<Integer, Integer> usedASServers = this.broker.getASServersToNumSessions();
                 cpuUtilReverseComparator.setUsedASServers(usedASServers.keySet());
                 Collections.sort(vms, cpuUtilReverseComparator);
 
-                // For debug purposes:
-                debugSB.setLength(0);
-                for (HddVm vm : vms) {
-                    debugSB.append(String.format("%s[%s] cpu(%.2f), ram(%.2f), cdlts(%d), sess(%d); ", vm,
-                            (usedASServers.containsKey(vm.getId()) ? "" : "FREE, ") + vm.getStatus(), vm.getCPUUtil(),
-                            vm.getRAMUtil(), vm.getCloudletScheduler().getCloudletExecList().size(),
-                            !usedASServers.containsKey(vm.getId()) ? 0 : usedASServers.get(vm.getId())));
-                }
+                // For debug purposes - built only if logged
+                Supplier<String> candidatesDescription = describeAppServers(vms, usedASServers, true);
 
                 HddVm hostVM = vms.get(vms.size() - 1);
                 for (HddVm vm : vms) {
@@ -112,21 +106,18 @@ public class CompressLoadBalancer extends BaseWebLoadBalancer implements ILoadBa
                 }
 
                 session.setAppVmId(hostVM.getId());
-                CustomLog
-                        .printf("[Load Balancer](%s): Assigning sesssion %d to %s[%s] cpu(%.2f), ram(%.2f), cdlts(%d), sess(%d);",
-                                broker, session.getSessionId(), hostVM, hostVM.getStatus(), hostVM.getCPUUtil(),
-                                hostVM.getRAMUtil(), hostVM.getCloudletScheduler().getCloudletExecList().size(),
-                                !usedASServers.containsKey(hostVM.getId()) ? 0 : usedASServers.get(hostVM.getId()));
-                CustomLog.printf("[Load Balancer](%s), Candidate VMs: %s", broker, debugSB);
+                final HddVm assignedVM = hostVM;
+                CustomLog.print(new Supplier<String>() {
+                    @Override
+                    public String get() {
+                        return String.format("[Load Balancer](%s): Assigning sesssion %d to %s", broker,
+                                session.getSessionId(), describeAppServer(assignedVM, usedASServers, false));
+                    }
+                });
+                CustomLog.printf("[Load Balancer](%s), Candidate VMs: %s", broker, candidatesDescription);
 
                 // Log the state of the DB servers
-                debugSB.setLength(0);
-                for (HddVm dbVm : getDbBalancer().getVMs()) {
-                    debugSB.append(String.format("%s cpu(%.2f), ram(%.2f), disk(%.2f), cdlts(%d);", dbVm,
-                            dbVm.getCPUUtil(), dbVm.getRAMUtil(), dbVm.getDiskUtil(), dbVm.getCloudletScheduler()
-                                    .getCloudletExecList().size()));
-                }
-                CustomLog.printf("[Load Balancer](%s), DB VMs: %s", broker, debugSB);
+                CustomLog.printf("[Load Balancer](%s), DB VMs: %s", broker, describeDbServers(getDbBalancer().getVMs()));
             }
 
             // Set the DB VM
@@ -13,6 +13,8 @@ import org.cloudbus.cloudsim.ex.disk.HddVm;
 import org.cloudbus.cloudsim.ex.util.CustomLog;
 import org.cloudbus.cloudsim.ex.web.workload.brokers.WebBroker;
 
+import com.google.common.base.Supplier;
+
 /**
  * Implements simple load balancing - sessions are assigned to the least busy
  * (in terms of CPU) application server VMs.
@@ -23,7 +25,6 @@ import org.cloudbus.cloudsim.ex.web.workload.brokers.WebBroker;
 public class SimpleWebLoadBalancer extends BaseWebLoadBalancer implements ILoadBalancer {
 
     private long startPositionWhenEqual = 0;
-    private StringBuffer debugSB = new StringBuffer();
     WebBroker broker;
 
     /**
@@ -81,11 +82,10 @@ public class SimpleWebLoadBalancer extends BaseWebLoadBalancer implements ILoadB
             }
         } else {
             @SuppressWarnings("unchecked")
-            Map<Integer, Integer> usedASServers = broker != null ? this.broker.getASServersToNumSessions()
+            final Map<Integer, Integer> usedASServers = broker != null ? this.broker.getASServersToNumSessions()
                     : Collections.EMPTY_MAP;
 
             // Get the VMs which are utilized the least
-            debugSB.setLength(0);
             List<HddVm> bestVms = new ArrayList<>();
             double bestUtilization = Double.MAX_VALUE;
             for (HddVm vm : runingVMs) {
@@ -99,28 +99,27 @@ public class SimpleWebLoadBalancer extends BaseWebLoadBalancer implements ILoadB
                         bestVms.add(vm);
                     }
                 }
-
-                debugSB.append(String.format("%s[%s] cpu(%.2f), ram(%.2f), cdlts(%d), sess(%d); ", vm, vm.getStatus(),
-                        vm.getCPUUtil(), vm.getRAMUtil(), vm.getCloudletScheduler().getCloudletExecList().size(),
-                        !usedASServers.containsKey(vm.getId()) ? 0 : usedASServers.get(vm.getId())));
             }
+            Supplier<String> candidatesDescription = describeAppServers(runingVMs, usedASServers, false);
 
             // Distribute the sessions among the best VMs
             long i = startPositionWhenEqual++;
             if (!bestVms.isEmpty()) {
-                for (WebSession session : noAppServSessions) {
+                for (final WebSession session : noAppServSessions) {
                     long index = i++ % bestVms.size();
-                    HddVm hostVM = bestVms.get((int) index);
+                    final HddVm hostVM = bestVms.get((int) index);
                     session.setAppVmId(hostVM.getId());
 
-                    CustomLog
-                            .printf("[Simple Load Balancer(%s): Assigning sesssion %d to %s[%s] cpu(%.2f), ram(%.2f), cdlts(%d), sess(%d);",
-                                    broker == null ? "N/A" : broker, session.getSessionId(), hostVM,
-                                    hostVM.getStatus(), hostVM.getCPUUtil(), hostVM.getRAMUtil(), hostVM
-                                            .getCloudletScheduler().getCloudletExecList().size(),
-                                    !usedASServers.containsKey(hostVM.getId()) ? 0 : usedASServers.get(hostVM.getId()));
+                    CustomLog.print(new Supplier<String>() {
+                        @Override
+                        public String get() {
+                            return String.format("[Simple Load Balancer(%s): Assigning sesssion %d to %s",
+                                    broker == null ? "N/A" : broker, session.getSessionId(),
+                                    describeAppServer(hostVM, usedASServers, false));
+                        }
+                    });
                     CustomLog.printf("[Simple Load Balancer(%s), Candidate VMs: %s", broker == null ? "N/A" : broker,
-                            debugSB);
+                            candidatesDescription);
 
                 }
             }
@@ -135,12 +134,7 @@ public class SimpleWebLoadBalancer extends BaseWebLoadBalancer implements ILoadB
         }
 
         // Log the state of the DB servers
-        debugSB.setLength(0);
-        for (HddVm dbVm : getDbBalancer().getVMs()) {
-            debugSB.append(String.format("%s cpu(%.2f), ram(%.2f), disk(%.2f), cdlts(%d);", dbVm, dbVm.getCPUUtil(),
-                    dbVm.getRAMUtil(), dbVm.getDiskUtil(), dbVm.getCloudletScheduler().getCloudletExecList().size()));
-        }
-        CustomLog.printf("[Simple Load Balancer], DB VMs: %s", debugSB);
+        CustomLog.printf("[Simple Load Balancer], DB VMs: %s", describeDbServers(getDbBalancer().getVMs()));
 
     }
 
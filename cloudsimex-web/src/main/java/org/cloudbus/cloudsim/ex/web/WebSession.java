@@ -44,6 +44,13 @@ import org.cloudbus.cloudsim.ex.util.Textualize;
  * time at a predefined period of time. This is done by the
  * {@link WebSession.notifyOfTime} method.
  * 
+ * <br/>
+ * <br/>
+ * 
+ * Once a session is over, it can be sealed with {@link WebSession#seal()}. A
+ * sealed session keeps only the values of its properties and releases its
+ * generators and cloudlets, so that it can be kept in memory for the final
+ * statistics at a low cost.
  * 
  * @author nikolay.grozev
  * 
@@ -55,8 +62,8 @@ public class WebSession {
     private static final Set<Integer> FAIL_CLOUDLET_STATES = new HashSet<Integer>(Arrays.asList(Cloudlet.FAILED,
             Cloudlet.FAILED_RESOURCE_UNAVAILABLE, Cloudlet.CANCELED));
 
-    private final IGenerator<? extends WebCloudlet> appServerCloudLets;
-    private final IGenerator<? extends Collection<? extends WebCloudlet>> dbServerCloudLets;
+    private IGenerator<? extends WebCloudlet> appServerCloudLets;
+    private IGenerator<? extends Collection<? extends WebCloudlet>> dbServerCloudLets;
 
     private WebCloudlet currentAppServerCloudLet = null;
     private List<? extends WebCloudlet> currentDBServerCloudLets = null;
@@ -76,6 +83,15 @@ public class WebSession {
     private final String[] metadata;
     private final int sessionId;
 
+    /**
+     * If the session is sealed, the values of the properties otherwise derived
+     * from its cloudlets.
+     */
+    private boolean sealed = false;
+    private boolean sealedComplete;
+    private boolean sealedFailed;
+    private double sealedFinishTime;
+
     /**
      * Creates a new instance with the specified cloudlet generators.
      * 
@@ -126,6 +142,7 @@ public class WebSession {
      *            standard dot form for IPv4 or IPv6 addresses.
      */
     public void setSourceIP(final String sourceIP) {
+        checkNotSealed();
         this.sourceIP = sourceIP;
     }
 
@@ -149,6 +166,7 @@ public class WebSession {
      *            standard dot form for IPv4 or IPv6 addresses.
      */
     public void setServerIP(final String serverIP) {
+        checkNotSealed();
         this.serverIP = serverIP;
     }
 
@@ -166,6 +184,7 @@ public class WebSession {
     }
 
     public void setUserId(final int userId) {
+        checkNotSealed();
         this.userId = userId;
     }
 
@@ -178,6 +197,7 @@ public class WebSession {
      * @return the result as described above.
      */
     public StepCloudlets pollCloudlets(final double currTime) {
+        checkNotSealed();
 
         StepCloudlets result = null;
         boolean appCloudletFinished = currentAppServerCloudLet == null || currentAppServerCloudLet.isFinished();
@@ -243,6 +263,7 @@ public class WebSession {
      *            - the current CloudSim time.
      */
     public void notifyOfTime(final double time) {
+        checkNotSealed();
         appServerCloudLets.notifyOfTime(time);
         dbServerCloudLets.notifyOfTime(time);
     }
@@ -264,11 +285,13 @@ public class WebSession {
      *            - the id of the VM hosting the app server.
      */
     public void setAppVmId(final int appVmId) {
+        checkNotSealed();
         this.appVmId = appVmId;
     }
 
     /**
      * Returns the balancer of DB cloudlets to the VMs hosting the db server.
+     * A sealed session has released its balancer and returns null.
      * 
      * @return the balancer of DB cloudlets to the VMs hosting the db server.
      */
@@ -284,6 +307,7 @@ public class WebSession {
      *            - the DB VM balancer.
      */
     public void setDbBalancer(final IDBBalancer dbBalancer) {
+        checkNotSealed();
         this.dbBalancer = dbBalancer;
     }
 
@@ -315,6 +339,9 @@ public class WebSession {
      *         running -1 is returned.
      */
     public double getFinishTime() {
+        if (sealed) {
+            return sealedFinishTime;
+        }
         double finishAS = currentAppServerCloudLet == null || !currentAppServerCloudLet.isFinished() ? -1
                 : currentAppServerCloudLet.getFinishTime();
         double finishDB = currentDBServerCloudLets == null || !areAllCloudletsFinished(currentDBServerCloudLets) ? -1
@@ -328,6 +355,7 @@ public class WebSession {
      * @param idealEnd
      */
     public void setIdealEnd(final double idealEnd) {
+        checkNotSealed();
         this.idealEnd = idealEnd;
     }
 
@@ -364,6 +392,9 @@ public class WebSession {
      * @return if the session has completed.
      */
     public boolean isComplete() {
+        if (sealed) {
+            return sealedComplete;
+        }
         return cloudletsLeft == 0 && currentAppServerCloudLet != null && currentAppServerCloudLet.isFinished()
                 && currentDBServerCloudLets != null && areAllCloudletsFinished(currentDBServerCloudLets);
     }
@@ -374,6 +405,9 @@ public class WebSession {
      * @return if the session has failed.
      */
     public boolean isFailed() {
+        if (sealed) {
+            return sealedFailed;
+        }
         return (currentAppServerCloudLet != null && FAIL_CLOUDLET_STATES.contains(currentAppServerCloudLet
                 .getCloudletStatus()))
                 || (currentDBServerCloudLets != null && anyCloudletsFailed(currentDBServerCloudLets));
@@ -381,13 +415,14 @@ public class WebSession {
 
     /**
      * If the session has failed, returns the cloudlets which caused the
-     * failure.
+     * failure. A sealed session has released its cloudlets, and returns an
+     * empty list.
      * 
      * @return If the session has failed, returns the cloudlets which caused the
      *         failure.
      */
     public List<WebCloudlet> getFailedCloudlets() {
-        if (isFailed()) {
+        if (!sealed && isFailed()) {
             List<WebCloudlet> res = new ArrayList<>();
             if (currentAppServerCloudLet != null
                     && FAIL_CLOUDLET_STATES.contains(currentAppServerCloudLet.getCloudletStatus())) {
@@ -421,6 +456,7 @@ public class WebSession {
      *         that it can execute.
      */
     public boolean areVirtualMachinesReady() {
+        checkNotSealed();
         for (HddVm vm : getDbBalancer().getVMs()) {
             if (vm.getHost() == null) {
                 return false;
@@ -429,6 +465,42 @@ public class WebSession {
         return appVmId != null;
     }
 
+    /**
+     * Seals the session, once it is over. The values of its properties are
+     * fixed, and its generators, cloudlets and DB balancer are released. After
+     * that, the session can not be modified or polled for cloudlets. Sealing
+     * a sealed session has no effect.
+     */
+    public void seal() {
+        if (!sealed) {
+            sealedComplete = isComplete();
+            sealedFailed = isFailed();
+            sealedFinishTime = getFinishTime();
+            sealed = true;
+
+            appServerCloudLets = null;
+            dbServerCloudLets = null;
+            currentAppServerCloudLet = null;
+            currentDBServerCloudLets = null;
+            dbBalancer = null;
+        }
+    }
+
+    /**
+     * Returns if the session is sealed.
+     * 
+     * @return if the session is sealed.
+     */
+    public boolean isSealed() {
+        return sealed;
+    }
+
+    private void checkNotSealed() {
+        if (sealed) {
+            throw new IllegalStateException("Web session " + sessionId + " is sealed");
+        }
+    }
+
     private static boolean areAllCloudletsFinished(final List<? extends WebCloudlet> cloudlets) {
         boolean result = true;
         for (WebCloudlet cl : cloudlets) {
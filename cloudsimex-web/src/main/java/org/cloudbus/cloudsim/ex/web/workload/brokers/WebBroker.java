@@ -3,14 +3,17 @@ package org.cloudbus.cloudsim.ex.web.workload.brokers;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.logging.Level;
 
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.DatacenterCharacteristics;
 import org.cloudbus.cloudsim.Log;
@@ -40,14 +43,25 @@ public class WebBroker extends MonitoringBorkerEX {
     protected static final int TIMER_TAG = BROKER_MEASURE_UTIL_NOW + 20;
     protected static final int SUBMIT_SESSION_TAG = TIMER_TAG + 1;
     protected static final int UPDATE_SESSION_TAG = SUBMIT_SESSION_TAG + 1;
+    // UPDATE_SESSION_TAG + 1 is used by PerformanceLoggingWebBroker
+    protected static final int WAKE_UP_SESSIONS_TAG = UPDATE_SESSION_TAG + 2;
 
     private boolean isTimerRunning = false;
     private final double stepPeriod;
     private final Map<Long, ILoadBalancer> appsToLoadBalancers = new HashMap<>();
     private final Map<Long, List<IWorkloadGenerator>> appsToGenerators = new HashMap<>();
 
-    private final LinkedHashMap<Integer, WebSession> activeSessions = new LinkedHashMap<>();
-    private final List<WebSession> completedSessions = new ArrayList<>();
+    private final WebSessionRegistry sessions = new WebSessionRegistry();
+
+    /**
+     * Times, when sessions need to be updated, mapped to the ids of these
+     * sessions in the order of their registration. Sessions are woken up by a
+     * single event per time, rather than by an event per session.
+     */
+    private final NavigableMap<Double, List<Integer>> sessionWakeUps = new TreeMap<>();
+    /** Times of the pending WAKE_UP_SESSIONS_TAG events. */
+    private final NavigableSet<Double> pendingWakeUpEvents = new TreeSet<>();
+
     private final List<WebSession> canceledSessions = new ArrayList<>();
 
     /** Mapping of application Ids to entry points. */
@@ -133,14 +147,65 @@ public class WebBroker extends MonitoringBorkerEX {
     }
 
     /**
-     * Returns the sessions that were successfully served.
+     * Returns the sessions that were successfully served - the completed and
+     * the active ones. If the completed sessions are not retained, only the
+     * active ones are returned.
      * 
-     * @return the sessions that were successfully served.
+     * @return a read-only view of the sessions that were successfully served.
+     *         Iterating it does not copy the sessions.
      */
     public List<WebSession> getServedSessions() {
-        List<WebSession> result = new ArrayList<>(completedSessions);
-        result.addAll(activeSessions.values());
-        return result;
+        return sessions.getServedSessions();
+    }
+
+    /**
+     * Returns if the completed sessions are retained, so that they are
+     * returned by {@link WebBroker#getServedSessions()}. True by default.
+     * 
+     * @return if the completed sessions are retained.
+     */
+    public boolean isRetainCompletedSessions() {
+        return sessions.isRetainCompletedSessions();
+    }
+
+    /**
+     * Sets if the completed sessions should be retained. If not, only their
+     * summaries are kept, e.g. {@link WebBroker#getNumCompletedSessions()}.
+     * 
+     * @param retainCompletedSessions
+     *            - if the completed sessions should be retained.
+     */
+    public void setRetainCompletedSessions(final boolean retainCompletedSessions) {
+        sessions.setRetainCompletedSessions(retainCompletedSessions);
+    }
+
+    /**
+     * Returns the number of the completed sessions, including the failed ones.
+     * 
+     * @return the number of the completed sessions.
+     */
+    public int getNumCompletedSessions() {
+        return sessions.getNumCompletedSessions();
+    }
+
+    /**
+     * Returns the number of the completed sessions, whose cloudlets have
+     * failed.
+     * 
+     * @return the number of the completed sessions, whose cloudlets have
+     *         failed.
+     */
+    public int getNumFailedSessions() {
+        return sessions.getNumFailedSessions();
+    }
+
+    /**
+     * Returns statistics of the delays of the completed sessions.
+     * 
+     * @return statistics of the delays of the completed sessions.
+     */
+    public StatisticalSummary getCompletedSessionsDelays() {
+        return sessions.getCompletedSessionsDelays();
     }
 
     /**
@@ -211,14 +276,14 @@ public class WebBroker extends MonitoringBorkerEX {
                         session.notifyOfTime(CloudSim.clock() + stepPeriod);
                     }
 
-                    activeSessions.put(session.getSessionId(), session);
+                    sessions.activate(session);
 
                     // Start the session or schedule it if its VMs are not
                     // initiated.
                     if (session.areVirtualMachinesReady()) {
                         updateSessions(session.getSessionId());
                     } else {
-                        send(getId(), stepPeriod, UPDATE_SESSION_TAG, session.getSessionId());
+                        scheduleSessionUpdate(session.getSessionId(), stepPeriod);
                     }
                 }
             }
@@ -324,6 +389,9 @@ public class WebBroker extends MonitoringBorkerEX {
             Integer sessId = (Integer) ev.getData();
             updateSessions(sessId);
             break;
+        case WAKE_UP_SESSIONS_TAG:
+            wakeUpSessions((Double) ev.getData());
+            break;
         default:
             super.processOtherEvent(ev);
         }
@@ -346,10 +414,89 @@ public class WebBroker extends MonitoringBorkerEX {
         }
     }
 
-    private void updateSessions(final Integer... sessionIds) {
+    /**
+     * Schedules the update of a session after the specified delay.
+     * 
+     * @param sessionId
+     *            - the id of the session to update.
+     * @param delay
+     *            - the delay. Must be positive.
+     */
+    /* pack access */void scheduleSessionUpdate(final Integer sessionId, final double delay) {
+        double time = getCurrentTime() + delay;
+        List<Integer> sessionIds = sessionWakeUps.get(time);
+        if (sessionIds == null) {
+            sessionIds = new ArrayList<>();
+            sessionWakeUps.put(time, sessionIds);
+        }
+        sessionIds.add(sessionId);
+        scheduleWakeUpEvent();
+    }
+
+    /**
+     * Sends a WAKE_UP_SESSIONS_TAG event for the earliest registered wake-up,
+     * unless one is already pending for it or for an earlier time. The pending
+     * event wakes up the sessions due then and schedules the next one, so
+     * usually only one such event is pending at a time. The wake-up time is
+     * sent as the event's data, as the event may be fired slightly before it
+     * due to rounding.
+     */
+    private void scheduleWakeUpEvent() {
+        if (!sessionWakeUps.isEmpty()) {
+            double time = sessionWakeUps.firstKey();
+            if (pendingWakeUpEvents.isEmpty() || time < pendingWakeUpEvents.first()) {
+                pendingWakeUpEvents.add(time);
+                send(getId(), time - getCurrentTime(), WAKE_UP_SESSIONS_TAG, time);
+            }
+        }
+    }
+
+    /**
+     * Updates in one batch all sessions, whose wake-up time has come.
+     * 
+     * @param wakeUpTime
+     *            - the wake-up time of the fired event. The sessions due until
+     *            then are updated, even if the event was fired slightly before
+     *            it.
+     */
+    /* pack access */void wakeUpSessions(final double wakeUpTime) {
+        pendingWakeUpEvents.headSet(wakeUpTime, true).clear();
+
+        // A session, registered multiple times for the same update, is
+        // updated only once
+        Set<Integer> dueSessionIds = new LinkedHashSet<>();
+        while (!sessionWakeUps.isEmpty() && sessionWakeUps.firstKey() <= wakeUpTime) {
+            dueSessionIds.addAll(sessionWakeUps.pollFirstEntry().getValue());
+        }
+
+        if (!dueSessionIds.isEmpty()) {
+            updateSessions(dueSessionIds.toArray(new Integer[dueSessionIds.size()]));
+        }
+        scheduleWakeUpEvent();
+    }
+
+    /**
+     * Returns the number of the pending WAKE_UP_SESSIONS_TAG events.
+     * 
+     * @return the number of the pending WAKE_UP_SESSIONS_TAG events.
+     */
+    /* pack access */int getNumPendingWakeUpEvents() {
+        return pendingWakeUpEvents.size();
+    }
+
+    /**
+     * Updates the specified active sessions, or all of them if no ids are
+     * specified. The new cloudlets of all updated sessions are submitted
+     * together.
+     * 
+     * @param sessionIds
+     *            - the ids of the sessions to update.
+     */
+    /* pack access */void updateSessions(final Integer... sessionIds) {
         List<Integer> completedIds = new ArrayList<>();
-        for (Integer id : sessionIds.length == 0 ? activeSessions.keySet() : Arrays.asList(sessionIds)) {
-            WebSession sess = activeSessions.get(id);
+        boolean hasNewCloudlets = false;
+        for (Integer id : sessionIds.length == 0 ? sessions.getActiveIds() : Arrays.asList(sessionIds)) {
+            WebSession sess = sessions.getActive(id);
 
             // If the session is complete - there is no need to update it.
             if (sess == null || sess.isComplete() || sess.isFailed()) {
@@ -364,7 +511,7 @@ public class WebBroker extends MonitoringBorkerEX {
             // start, this may not be so, as the refreshing action of the broker
             // may happen before the mapping of VMs to hosts.
             if (sess.areVirtualMachinesReady()) {
-                double currTime = CloudSim.clock();
+                double currTime = getCurrentTime();
 
                 // sess.notifyOfTime(currTime);
                 try {
@@ -378,12 +525,12 @@ public class WebBroker extends MonitoringBorkerEX {
 
                         getCloudletList().add(webCloudlets.asCloudlet);
                         getCloudletList().addAll(webCloudlets.dbCloudlets);
-                        submitCloudlets();
+                        hasNewCloudlets = true;
 
                         double nextIdealTime = currTime + stepPeriod;
                         sess.notifyOfTime(nextIdealTime);
 
-                        send(getId(), stepPeriod, UPDATE_SESSION_TAG, sess.getSessionId());
+                        scheduleSessionUpdate(sess.getSessionId(), stepPeriod);
                     }
                 } catch (SessionFailedException e) {
                     CustomLog.printf("Broker(%s): Session %d with metadata %s has failed. Details: %s", this,
@@ -393,15 +540,25 @@ public class WebBroker extends MonitoringBorkerEX {
             }
         }
 
+        if (hasNewCloudlets) {
+            submitCloudlets();
+        }
+
         // Remote completed sessions...
         for (Integer id : completedIds) {
-            WebSession sess = activeSessions.remove(id);
-            if (sess != null) {
-                completedSessions.add(sess);
-            }
+            sessions.complete(id);
         }
     }
 
+    /**
+     * Returns the current simulation time. Can be overridden for test purposes.
+     * 
+     * @return the current simulation time.
+     */
+    protected double getCurrentTime() {
+        return CloudSim.clock();
+    }
+
     private void logSessionFailure(WebSession sess) {
         StringBuffer detailsBuffer = new StringBuffer();
         for (WebCloudlet wc : sess.getFailedCloudlets()) {
@@ -429,6 +586,15 @@ public class WebBroker extends MonitoringBorkerEX {
     protected void processCloudletReturn(final SimEvent ev) {
         super.processCloudletReturn(ev);
         Cloudlet cloudlet = (Cloudlet) ev.getData();
+        if (cloudlet instanceof WebCloudlet) {
+            // A completed session no longer counts for its server, even if it
+            // is not removed from the active sessions, as the broker's life
+            // is over.
+            WebSession sess = sessions.getActive(((WebCloudlet) cloudlet).getSessionId());
+            if (sess != null && sess.isComplete()) {
+                sessions.releaseServer(sess);
+            }
+        }
         if (CloudSim.clock() < getLifeLength()) {
             // kill the broker only if its life length is over/expired
             if (cloudlet instanceof WebCloudlet) {
@@ -459,38 +625,38 @@ public class WebBroker extends MonitoringBorkerEX {
         }
     }
 
-    public Set<Integer> getSessionsInServer(int vmId) {
-        Set<Integer> result = new LinkedHashSet<>();
-        for (Map.Entry<Integer, WebSession> e : activeSessions.entrySet()) {
-            WebSession session = e.getValue();
-            if (!session.isComplete() && session.getAppVmId() == vmId) {
-                result.add(session.getSessionId());
-            }
-        }
-        return result;
+    /**
+     * Returns the ids of the active sessions served by the specified AS
+     * server.
+     * 
+     * @param vmId
+     *            - the id of the AS server.
+     * @return a read-only view of the ids of the active sessions served by
+     *         the server, in the order of their assignment.
+     */
+    public Set<Integer> getSessionsInServer(final int vmId) {
+        return sessions.getSessionsInServer(vmId);
     }
 
+    /**
+     * Returns the ids of the AS servers, which serve active sessions.
+     * 
+     * @return a read-only view of the ids of the AS servers, which serve
+     *         active sessions.
+     */
     public Set<Integer> getUsedASServers() {
-        Set<Integer> result = new HashSet<>();
-        for (Map.Entry<Integer, WebSession> e : activeSessions.entrySet()) {
-            WebSession session = e.getValue();
-            if (!session.isComplete()) {
-                result.add(session.getAppVmId());
-            }
-        }
-        return result;
+        return sessions.getASServersToNumSessions().keySet();
     }
 
+    /**
+     * Returns the ids of the AS servers, which serve active sessions, mapped
+     * to the number of these sessions.
+     * 
+     * @return a read-only view of the ids of the AS servers, which serve
+     *         active sessions, mapped to the number of these sessions.
+     */
     public Map<Integer, Integer> getASServersToNumSessions() {
-        Map<Integer, Integer> result = new HashMap<>();
-        for (Map.Entry<Integer, WebSession> e : activeSessions.entrySet()) {
-            WebSession session = e.getValue();
-            if (!session.isComplete()) {
-                result.put(session.getAppVmId(),
-                        result.containsKey(session.getAppVmId()) ? result.get(session.getAppVmId()) + 1 : 1);
-            }
-        }
-        return result;
+        return sessions.getASServersToNumSessions();
     }
 
 }
@@ -0,0 +1,228 @@
+package org.cloudbus.cloudsim.ex.web.workload.brokers;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.cloudbus.cloudsim.ex.web.WebSession;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+
+/**
+ * Keeps track of the sessions of a {@link WebBroker} - the active ones,
+ * indexed by the AS servers serving them, and the completed ones.
+ * 
+ * <br/>
+ * <br/>
+ * 
+ * By default the completed sessions are retained in their sealed form (see
+ * {@link WebSession#seal()}), so that they can be inspected after the
+ * simulation. For long simulations this can be switched off. Then only
+ * summaries of the completed sessions are kept - their number, the number of
+ * the failed ones and statistics of their delays.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+class WebSessionRegistry {
+
+    private final LinkedHashMap<Integer, WebSession> activeSessions = new LinkedHashMap<>();
+
+    /**
+     * Index of the ids of the AS servers to the ids of the active sessions
+     * they serve. Servers, which have served sessions are never removed, so
+     * that the views of their sets stay valid.
+     */
+    private final Map<Integer, Set<Integer>> asServersToSessions = new HashMap<>();
+    /** View of the servers with active sessions to their sessions. */
+    private final Map<Integer, Set<Integer>> usedASServersToSessions = Maps.filterValues(asServersToSessions,
+            new Predicate<Set<Integer>>() {
+                @Override
+                public boolean apply(final Set<Integer> sessionIds) {
+                    return !sessionIds.isEmpty();
+                }
+            });
+    /** Read-only view of the servers with active sessions to their number. */
+    private final Map<Integer, Integer> asServersToNumSessions = Collections.unmodifiableMap(Maps.transformValues(
+            usedASServersToSessions, new Function<Set<Integer>, Integer>() {
+                @Override
+                public Integer apply(final Set<Integer> sessionIds) {
+                    return sessionIds.size();
+                }
+            }));
+
+    private boolean retainCompletedSessions = true;
+    private final List<WebSession> completedSessions = new ArrayList<>();
+    private int numCompletedSessions = 0;
+    private int numFailedSessions = 0;
+    private final SummaryStatistics completedSessionsDelays = new SummaryStatistics();
+
+    /**
+     * The active sessions in the order of their activation, used for indexed
+     * access to them. Made on the first such access, and dropped when the
+     * active sessions change.
+     */
+    private List<WebSession> activeSessionsSnapshot = null;
+
+    /**
+     * Read-only view of the retained completed sessions and the active ones.
+     * Indexed access to the active ones is constant time, until they change.
+     */
+    private final List<WebSession> servedSessions = new AbstractList<WebSession>() {
+        @Override
+        public WebSession get(final int index) {
+            if (index < completedSessions.size()) {
+                return completedSessions.get(index);
+            } else if (index < size()) {
+                if (activeSessionsSnapshot == null) {
+                    activeSessionsSnapshot = new ArrayList<>(activeSessions.values());
+                }
+                return activeSessionsSnapshot.get(index - completedSessions.size());
+            } else {
+                throw new IndexOutOfBoundsException(String.valueOf(index));
+            }
+        }
+
+        @Override
+        public Iterator<WebSession> iterator() {
+            return Iterators.unmodifiableIterator(Iterators.concat(completedSessions.iterator(), activeSessions
+                    .values().iterator()));
+        }
+
+        @Override
+        public int size() {
+            return completedSessions.size() + activeSessions.size();
+        }
+    };
+
+    /**
+     * Registers a session, which has been assigned to its servers.
+     * 
+     * @param session
+     *            - the session. Must not be null and must have an AS server.
+     */
+    public void activate(final WebSession session) {
+        activeSessions.put(session.getSessionId(), session);
+        activeSessionsSnapshot = null;
+        indexSession(session);
+    }
+
+    /**
+     * Returns the active session with the specified id.
+     * 
+     * @param sessionId
+     *            - the id of the session.
+     * @return the active session with the specified id or null if there is no
+     *         such active session.
+     */
+    public WebSession getActive(final Integer sessionId) {
+        return activeSessions.get(sessionId);
+    }
+
+    /**
+     * Returns the ids of the active sessions, in the order of their
+     * activation.
+     * 
+     * @return the ids of the active sessions.
+     */
+    public Collection<Integer> getActiveIds() {
+        return activeSessions.keySet();
+    }
+
+    /**
+     * Moves an active session to the completed ones and seals it, if it is
+     * retained. Does nothing if there is no such active session.
+     * 
+     * @param sessionId
+     *            - the id of the session.
+     */
+    public void complete(final Integer sessionId) {
+        WebSession session = activeSessions.remove(sessionId);
+        if (session != null) {
+            activeSessionsSnapshot = null;
+            unindexSession(session);
+
+            numCompletedSessions++;
+            if (session.isFailed()) {
+                numFailedSessions++;
+            }
+            completedSessionsDelays.addValue(session.getDelay());
+            if (retainCompletedSessions) {
+                session.seal();
+                completedSessions.add(session);
+            }
+        }
+    }
+
+    /**
+     * Stops counting a session for its AS server, while it remains active.
+     * 
+     * @param session
+     *            - the session. Must not be null.
+     */
+    public void releaseServer(final WebSession session) {
+        unindexSession(session);
+    }
+
+    private void indexSession(final WebSession session) {
+        Set<Integer> sessionIds = asServersToSessions.get(session.getAppVmId());
+        if (sessionIds == null) {
+            sessionIds = new LinkedHashSet<>();
+            asServersToSessions.put(session.getAppVmId(), sessionIds);
+        }
+        sessionIds.add(session.getSessionId());
+    }
+
+    private void unindexSession(final WebSession session) {
+        Set<Integer> sessionIds = asServersToSessions.get(session.getAppVmId());
+        if (sessionIds != null) {
+            sessionIds.remove(session.getSessionId());
+        }
+    }
+
+    public Set<Integer> getSessionsInServer(final int vmId) {
+        Set<Integer> sessionIds = asServersToSessions.get(vmId);
+        return sessionIds == null ? Collections.<Integer> emptySet() : Collections.unmodifiableSet(sessionIds);
+    }
+
+    public Map<Integer, Integer> getASServersToNumSessions() {
+        return asServersToNumSessions;
+    }
+
+    public List<WebSession> getServedSessions() {
+        return servedSessions;
+    }
+
+    public boolean isRetainCompletedSessions() {
+        return retainCompletedSessions;
+    }
+
+    public void setRetainCompletedSessions(final boolean retainCompletedSessions) {
+        this.retainCompletedSessions = retainCompletedSessions;
+    }
+
+    public int getNumCompletedSessions() {
+        return numCompletedSessions;
+    }
+
+    public int getNumFailedSessions() {
+        return numFailedSessions;
+    }
+
+    public StatisticalSummary getCompletedSessionsDelays() {
+        return completedSessionsDelays.getSummary();
+    }
+}
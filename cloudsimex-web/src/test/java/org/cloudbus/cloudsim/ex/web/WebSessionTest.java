@@ -5,6 +5,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.util.HashMap;
@@ -160,6 +162,37 @@ public class WebSessionTest {
         assertNull(twoDataItemsStatSession.pollCloudlets(time++));
     }
 
+    @Test
+    public void testSealing() {
+        int time = 0;
+        for (int i = 0; i < numCloudletsInSession2; i++) {
+            twoDataItemsStatSession.notifyOfTime(time++);
+            WebSession.StepCloudlets currCloudLets = twoDataItemsStatSession.pollCloudlets(time++);
+            ((TestWebCloudlet) currCloudLets.asCloudlet).setFinished(true);
+            ((TestWebCloudlet) currCloudLets.dbCloudlets.get(0)).setFinished(true);
+            ((TestWebCloudlet) currCloudLets.dbCloudlets.get(1)).setFinished(true);
+        }
+        assertTrue(twoDataItemsStatSession.isComplete());
+        double finishTime = twoDataItemsStatSession.getFinishTime();
+        double delay = twoDataItemsStatSession.getDelay();
+
+        twoDataItemsStatSession.seal();
+        assertTrue(twoDataItemsStatSession.isSealed());
+        assertTrue(twoDataItemsStatSession.isComplete());
+        assertFalse(twoDataItemsStatSession.isFailed());
+        assertEquals(finishTime, twoDataItemsStatSession.getFinishTime(), 0);
+        assertEquals(delay, twoDataItemsStatSession.getDelay(), 0);
+        assertNull(twoDataItemsStatSession.getCurrentAppServerCloudLet());
+        assertNull(twoDataItemsStatSession.getDbBalancer());
+
+        try {
+            twoDataItemsStatSession.pollCloudlets(time++);
+            fail("A sealed session must not be polled");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
     @Test
     public void testPollingEmptySession() {
         int currTime = 0;
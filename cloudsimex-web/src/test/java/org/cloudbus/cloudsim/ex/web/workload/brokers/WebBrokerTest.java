@@ -0,0 +1,183 @@
+package org.cloudbus.cloudsim.ex.web.workload.brokers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Tests the waking up of the sessions of the {@link WebBroker}, without
+ * running a simulation.
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class WebBrokerTest {
+
+    private static final double STEP_PERIOD = 0.5;
+
+    private TestWebBroker broker;
+
+    @Before
+    public void setUp() throws Exception {
+        CloudSim.init(1, Calendar.getInstance(), false);
+        broker = new TestWebBroker();
+    }
+
+    @Test
+    public void testSessionsDueAtTheSameTime() {
+        broker.scheduleSessionUpdate(1, 1);
+        broker.scheduleSessionUpdate(2, 1);
+        broker.scheduleSessionUpdate(3, 2);
+        assertEquals(1, broker.getNumPendingWakeUpEvents());
+
+        broker.fireWakeUpEvents();
+
+        assertEquals(ImmutableMap.of(1.0, Arrays.asList(1, 2), 2.0, Arrays.asList(3)), broker.updates);
+        assertEquals(Arrays.asList(1.0, 2.0), broker.sentWakeUpEvents);
+        assertEquals(0, broker.getNumPendingWakeUpEvents());
+    }
+
+    @Test
+    public void testSessionRegisteredTwice() {
+        broker.scheduleSessionUpdate(1, 1);
+        broker.scheduleSessionUpdate(2, 1);
+        broker.scheduleSessionUpdate(1, 1);
+        assertEquals(1, broker.getNumPendingWakeUpEvents());
+
+        broker.fireWakeUpEvents();
+
+        assertEquals(ImmutableMap.of(1.0, Arrays.asList(1, 2)), broker.updates);
+        assertEquals(Arrays.asList(1.0), broker.sentWakeUpEvents);
+    }
+
+    @Test
+    public void testEarlierWakeUp() {
+        broker.scheduleSessionUpdate(1, 2);
+        broker.scheduleSessionUpdate(2, 1);
+        assertEquals(2, broker.getNumPendingWakeUpEvents());
+
+        broker.fireWakeUpEvents();
+
+        // The already pending event is not sent again
+        assertEquals(ImmutableMap.of(1.0, Arrays.asList(2), 2.0, Arrays.asList(1)), broker.updates);
+        assertEquals(Arrays.asList(2.0, 1.0), broker.sentWakeUpEvents);
+        assertEquals(0, broker.getNumPendingWakeUpEvents());
+    }
+
+    @Test
+    public void testEventFiredBeforeWakeUpTime() {
+        broker.scheduleSessionUpdate(2, 0.4);
+        broker.scheduleSessionUpdate(1, 1.7);
+
+        // Sent at 0.4 with delay 1.7 - 0.4, the event is fired before 1.7
+        broker.fireNextWakeUpEvent();
+        broker.fireNextWakeUpEvent();
+        double firedTime = 0.4 + (1.7 - 0.4);
+        assertTrue(firedTime < 1.7);
+        assertEquals(ImmutableMap.of(0.4, Arrays.asList(2), firedTime, Arrays.asList(1)), broker.updates);
+        assertEquals(0, broker.getNumPendingWakeUpEvents());
+
+        // The later sessions are still woken up
+        broker.scheduleSessionUpdate(3, 1);
+        assertEquals(1, broker.getNumPendingWakeUpEvents());
+        broker.fireWakeUpEvents();
+        assertEquals(Arrays.asList(3), broker.updates.get(firedTime + 1));
+        assertEquals(0, broker.getNumPendingWakeUpEvents());
+    }
+
+    @Test
+    public void testSessionSteps() {
+        broker.stepping = true;
+        broker.scheduleSessionUpdate(1, STEP_PERIOD);
+        broker.scheduleSessionUpdate(2, STEP_PERIOD);
+        broker.time = 0.25;
+        broker.scheduleSessionUpdate(3, STEP_PERIOD);
+
+        int numSteps = 10;
+        for (int i = 0; i < numSteps; i++) {
+            broker.fireNextWakeUpEvent();
+            assertEquals(1, broker.getNumPendingWakeUpEvents());
+            broker.fireNextWakeUpEvent();
+            assertEquals(1, broker.getNumPendingWakeUpEvents());
+        }
+
+        // Each session is updated once per step, as if it had its own event
+        Map<Double, List<Integer>> expected = new LinkedHashMap<>();
+        for (int i = 1; i <= numSteps; i++) {
+            expected.put(i * STEP_PERIOD, Arrays.asList(1, 2));
+            expected.put(i * STEP_PERIOD + 0.25, Arrays.asList(3));
+        }
+        assertEquals(expected, broker.updates);
+    }
+
+    /**
+     * A broker, which records the sent wake up events and the updated
+     * sessions, and delivers the events when asked.
+     */
+    private static class TestWebBroker extends WebBroker {
+
+        private double time = 0;
+        private boolean stepping = false;
+        /** Times of the sent events, mapped to their data. */
+        private final NavigableMap<Double, Double> wakeUpEvents = new TreeMap<>();
+        private final List<Double> sentWakeUpEvents = new ArrayList<>();
+        private final Map<Double, List<Integer>> updates = new LinkedHashMap<>();
+
+        public TestWebBroker() throws Exception {
+            super("TestBroker", STEP_PERIOD, 100, 0);
+        }
+
+        @Override
+        protected double getCurrentTime() {
+            return time;
+        }
+
+        @Override
+        protected void send(final int entityId, final double delay, final int cloudSimTag, final Object data) {
+            if (cloudSimTag == WAKE_UP_SESSIONS_TAG) {
+                // Fired as CloudSim would - at the current time plus the delay
+                wakeUpEvents.put(time + delay, (Double) data);
+                sentWakeUpEvents.add((Double) data);
+            } else {
+                super.send(entityId, delay, cloudSimTag, data);
+            }
+        }
+
+        @Override
+        void updateSessions(final Integer... sessionIds) {
+            updates.put(time, Arrays.asList(sessionIds));
+            if (stepping) {
+                for (Integer id : sessionIds) {
+                    scheduleSessionUpdate(id, STEP_PERIOD);
+                }
+            }
+        }
+
+        public void fireNextWakeUpEvent() {
+            Map.Entry<Double, Double> event = wakeUpEvents.pollFirstEntry();
+            time = event.getKey();
+            wakeUpSessions(event.getValue());
+        }
+
+        public void fireWakeUpEvents() {
+            while (!wakeUpEvents.isEmpty()) {
+                fireNextWakeUpEvent();
+            }
+        }
+    }
+
+}
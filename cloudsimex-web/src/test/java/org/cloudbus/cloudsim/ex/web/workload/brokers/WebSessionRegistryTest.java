@@ -0,0 +1,104 @@
+package org.cloudbus.cloudsim.ex.web.workload.brokers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.cloudbus.cloudsim.ex.web.WebSession;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * 
+ * @author nikolay.grozev
+ * 
+ */
+public class WebSessionRegistryTest {
+
+    private static final int AS_VM_1 = 1;
+    private static final int AS_VM_2 = 2;
+
+    private WebSessionRegistry registry;
+    private WebSession session1;
+    private WebSession session2;
+    private WebSession session3;
+
+    @Before
+    public void setUp() {
+        registry = new WebSessionRegistry();
+        session1 = createSession(AS_VM_1);
+        session2 = createSession(AS_VM_1);
+        session3 = createSession(AS_VM_2);
+        registry.activate(session1);
+        registry.activate(session2);
+        registry.activate(session3);
+    }
+
+    @Test
+    public void testServerIndex() {
+        assertEquals(ImmutableMap.of(AS_VM_1, 2, AS_VM_2, 1), registry.getASServersToNumSessions());
+        assertEquals(ImmutableSet.of(session1.getSessionId(), session2.getSessionId()),
+                registry.getSessionsInServer(AS_VM_1));
+
+        registry.complete(session3.getSessionId());
+        registry.releaseServer(session1);
+        assertEquals(ImmutableMap.of(AS_VM_1, 1), registry.getASServersToNumSessions());
+        assertEquals(ImmutableSet.of(session2.getSessionId()), registry.getSessionsInServer(AS_VM_1));
+        assertTrue(registry.getSessionsInServer(AS_VM_2).isEmpty());
+    }
+
+    @Test
+    public void testServedSessions() {
+        registry.complete(session2.getSessionId());
+        assertNull(registry.getActive(session2.getSessionId()));
+        assertTrue(session2.isSealed());
+        assertEquals(Arrays.asList(session2, session1, session3), registry.getServedSessions());
+        assertEquals(Arrays.asList(session2, session1, session3), new ArrayList<>(registry.getServedSessions()));
+        assertEquals(session3, registry.getServedSessions().get(2));
+
+        // Only summaries of the sessions completed from now on are kept
+        registry.setRetainCompletedSessions(false);
+        registry.complete(session1.getSessionId());
+        assertEquals(Arrays.asList(session2, session3), registry.getServedSessions());
+        assertEquals(2, registry.getNumCompletedSessions());
+        assertEquals(0, registry.getNumFailedSessions());
+        assertEquals(2, registry.getCompletedSessionsDelays().getN());
+    }
+
+    @Test
+    public void testServedSessionsIndexedAccess() {
+        List<WebSession> served = registry.getServedSessions();
+        for (int i = 0; i < served.size(); i++) {
+            assertSame(Arrays.asList(session1, session2, session3).get(i), served.get(i));
+        }
+
+        // The indexed access reflects the changes of the active sessions
+        WebSession session4 = createSession(AS_VM_2);
+        registry.activate(session4);
+        assertSame(session4, served.get(3));
+
+        registry.complete(session1.getSessionId());
+        assertEquals(Arrays.asList(session1, session2, session3, session4), served);
+        assertSame(session2, served.get(1));
+        assertSame(session4, served.get(3));
+
+        registry.setRetainCompletedSessions(false);
+        registry.complete(session3.getSessionId());
+        assertSame(session4, served.get(2));
+        assertEquals(3, served.size());
+    }
+
+    private static WebSession createSession(final int asVmId) {
+        WebSession session = new WebSession(null, null, -1, 1, 100);
+        session.setAppVmId(asVmId);
+        return session;
+    }
+}